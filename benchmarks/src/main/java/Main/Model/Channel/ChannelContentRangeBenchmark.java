@@ -0,0 +1,83 @@
+package Main.Model.Channel;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h1>Measures the latency of finding the episodes around now</h1>
+ *
+ * The channel has back to back episodes of 30 minutes, centered around
+ * the current time, so that the range always finds 48 episodes whatever
+ * the size of the schedule.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChannelContentRangeBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int episodes;
+
+    private Channel channel;
+
+    /**
+     * Builds the channel and it's index.
+     */
+    @Setup
+    public void setUp() {
+        this.channel = new Channel();
+        this.channel.setChannelName("P1");
+        this.channel.setChannelId(132);
+        long startTime = Instant.now().getEpochSecond()
+                - this.episodes / 2 * 1800L;
+        for (int i = 0; i < this.episodes; i++) {
+            ChannelContent content = new ChannelContent();
+            content.setEpisodeID(String.valueOf(i));
+            content.setTitle("Avsnitt " + i);
+            content.setStartTime(startTime + i * 1800L);
+            content.setEndTime(startTime + (i + 1) * 1800L);
+            this.channel.addChannelContent(content);
+        }
+        this.channel.freeze();
+    }
+
+    /**
+     * Finds the episodes 12 hours before and after now, as the table does.
+     *
+     * @return The episodes, so that the work isn't optimized away.
+     */
+    @Benchmark
+    public ArrayList<ChannelContent> hourRange() {
+        return this.channel.getChannelContentByHourRange(12, 12);
+    }
+
+    /**
+     * Finds the episode that is broadcast now.
+     *
+     * @return The episode, so that the work isn't optimized away.
+     */
+    @Benchmark
+    public ChannelContent contentAt() {
+        return this.channel.getChannelContentAt(
+                Instant.now().getEpochSecond());
+    }
+}
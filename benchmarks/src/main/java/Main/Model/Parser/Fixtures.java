@@ -0,0 +1,24 @@
+package Main.Model.Parser;
+
+/**
+ * <h1>Locates the fixtures used by the tests</h1>
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class Fixtures {
+
+    private Fixtures() { }
+
+    /**
+     * Retrieves the directory of the fixtures.
+     *
+     * @return The directory set by radio.benchmark.resources, by default
+     *         src/tests/Resources relative to the benchmarks directory.
+     */
+    public static String getResourceDirectory() {
+        return System.getProperty("radio.benchmark.resources",
+                "../src/tests/Resources");
+    }
+}
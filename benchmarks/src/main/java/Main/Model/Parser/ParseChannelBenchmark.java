@@ -0,0 +1,83 @@
+package Main.Model.Parser;
+
+import Main.Model.Channel.Channel;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.management.modelmbean.XMLParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h1>Measures the throughput of parsing the channel list</h1>
+ *
+ * Parses the channel list fixture in src/tests/Resources, or a generated
+ * channel list with the given number of channels, with each engine. Run
+ * with -prof gc to also get the allocation rate.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseChannelBenchmark {
+
+    @Param({"DOM", "STAX", "JSON"})
+    public ParserEngine engine;
+
+    @Param({"fixture", "100", "1000"})
+    public String channels;
+
+    private byte[] channelList;
+
+    /**
+     * Reads or generates the channel list.
+     *
+     * @throws IOException If the fixture couldn't be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        if (this.channels.equals("fixture")) {
+            this.channelList = Files.readAllBytes(Paths.get(
+                    Fixtures.getResourceDirectory(),
+                    this.engine == ParserEngine.JSON
+                            ? "channel_complete.json"
+                            : "channel_complete.xml"));
+        } else {
+            this.channelList = new ScheduleGenerator(1,
+                    Integer.parseInt(this.channels), 48).channels(
+                    this.engine == ParserEngine.JSON,
+                    id -> "https://api.sr.se/api/v2/scheduledepisodes"
+                            + "?channelid=" + id);
+        }
+    }
+
+    /**
+     * Parses the channel list.
+     *
+     * @return The channels, so that the work isn't optimized away.
+     * @throws XMLParseException If the channel list couldn't be parsed.
+     */
+    @Benchmark
+    public ArrayList<Channel> parseChannelList() throws XMLParseException {
+        return new ParseChannel(new ByteArrayInputStream(this.channelList),
+                null, this.engine).getChannelMetadata();
+    }
+}
@@ -0,0 +1,86 @@
+package Main.Model.Parser;
+
+import Main.Model.Channel.Channel;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import javax.management.modelmbean.XMLParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h1>Measures the throughput of parsing a schedule</h1>
+ *
+ * Parses the schedule fixture in src/tests/Resources, or a day of a
+ * generated schedule with the given number of episodes, with each
+ * engine. Run with -prof gc to also get the allocation rate.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseChannelContentBenchmark {
+
+    @Param({"DOM", "STAX", "JSON"})
+    public ParserEngine engine;
+
+    @Param({"fixture", "48", "1440"})
+    public String episodes;
+
+    private byte[] schedule;
+
+    /**
+     * Reads or generates the schedule.
+     *
+     * @throws IOException If the fixture couldn't be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        if (this.episodes.equals("fixture")) {
+            this.schedule = Files.readAllBytes(Paths.get(
+                    Fixtures.getResourceDirectory(),
+                    this.engine == ParserEngine.JSON
+                            ? "channel_content_complete.json"
+                            : "channel_content_complete.xml"));
+        } else {
+            ScheduleGenerator generator = new ScheduleGenerator(1, 1,
+                    Integer.parseInt(this.episodes));
+            // a day without a daylight saving time change
+            this.schedule = generator.schedule(generator.getChannelId(0),
+                    LocalDate.of(2022, 1, 1),
+                    this.engine == ParserEngine.JSON);
+        }
+    }
+
+    /**
+     * Parses the schedule into a new channel.
+     *
+     * @return The channel, so that the work isn't optimized away.
+     * @throws XMLParseException If the schedule couldn't be parsed.
+     */
+    @Benchmark
+    public Channel parseSchedule() throws XMLParseException {
+        Channel channel = new Channel();
+        new ParseChannelContent(new ByteArrayInputStream(this.schedule),
+                this.engine).parseChannelContent(channel);
+        return channel;
+    }
+}
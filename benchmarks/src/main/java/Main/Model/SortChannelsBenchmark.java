@@ -0,0 +1,72 @@
+package Main.Model;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelHolder;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h1>Measures sorting thousands of channels into categories</h1>
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortChannelsBenchmark {
+
+    private static final String[] channelNames = {
+            "P1", "P2", "P3", "P4", "SR", "Radioapans"
+    };
+
+    @Param({"1000", "5000", "20000"})
+    public int channels;
+
+    private Model model;
+    private ChannelHolder unsortedChannels;
+    private String[] categories;
+
+    /**
+     * Builds the unsorted channels.
+     */
+    @Setup
+    public void setUp() {
+        this.model = new Model();
+        this.categories = Model.getDefaultCategories();
+        this.unsortedChannels = new ChannelHolder();
+        for (int i = 0; i < this.channels; i++) {
+            Channel channel = new Channel();
+            channel.setChannelName(channelNames[i % channelNames.length]
+                    + " " + i);
+            channel.setChannelId(i);
+            this.unsortedChannels.addChannel(channel);
+        }
+    }
+
+    /**
+     * Sorts the channels into the default categories.
+     *
+     * @return The sorted channels, so that the work isn't optimized away.
+     */
+    @Benchmark
+    public Map<String, ChannelHolder> sortChannels() {
+        return this.model.sortChannels(this.unsortedChannels,
+                this.categories);
+    }
+}
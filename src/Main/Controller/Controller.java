@@ -4,25 +4,38 @@ import Main.Model.Channel.Channel;
 import Main.Model.Channel.ChannelContainer;
 import Main.Model.Channel.ChannelContent;
 import Main.Model.Channel.ChannelHolder;
+import Main.Model.ChannelUpdate;
+import Main.Model.Events.WorkerDoneEvent;
 import Main.Model.Model;
+import Main.Model.RefreshCoordinator;
+import Main.View.ImageLoader;
+import Main.View.ScheduleTableModel;
 import Main.View.View;
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.io.IOException;
-import java.net.URL;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.prefs.Preferences;
 
 /**
  * <h1>Runs a radio schedule application</h1>
  *
  * Combines the model and view part of the radio application.
  * Also makes sure that the Model is running on a separate thread from the EDT.
+ * The channels from the last run are shown from a snapshot until the model
+ * has fetched new data. Only one refresh runs at a time, and it's
+ * cancelled when the window is closed.
  *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
@@ -30,34 +43,68 @@ import java.util.concurrent.ExecutionException;
  */
 public class Controller implements ActionListener {
 
+    private static final String currentChannelKey = "currentChannelId";
+    private static final String channelCommandPrefix = "channel:";
+
     private String[] categories;
-    private MouseAdapter mouseAdapter;
-    private Map<String, Channel> allChannels;
+    // the frozen snapshot shown in the menu
+    private ChannelContainer shownChannels;
+    // channels that are done during the refresh in progress, EDT only
+    private ChannelHolder refreshedChannels;
+    private Map<String, Map<String, String>> menuCategoryItems;
     private View view;
     private Model model;
-    private String currentChannel;
+    private RefreshCoordinator refreshCoordinator;
+    private SwingWorker<ChannelContainer, ChannelUpdate> worker;
+    private ImageLoader imageLoader;
+    private Preferences preferences;
+    private int currentChannel;
 
     /**
      * Sets the controller objects start attributes
      *
-     * <p>Dictates in which order the application parts will run.</p>
+     * <p>Dictates in which order the application parts will run. The
+     *    shown channel isn't remembered.</p>
      */
     public Controller(Model model, View view) {
+        this(model, view, null);
+    }
+
+    /**
+     * Sets the controller objects start attributes, and remembers the
+     * shown channel between runs.
+     *
+     * <p>Dictates in which order the application parts will run.</p>
+     *
+     * @param model The model.
+     * @param view The view.
+     * @param preferences Stores the id of the shown channel, eg
+     *                    Preferences.userNodeForPackage(Controller.class).
+     *                    Null if it shouldn't be stored.
+     */
+    public Controller(Model model, View view, Preferences preferences) {
         this.view = view;
         this.model = model;
-        this.currentChannel = null;
-        this.mouseAdapter = null;
-        this.allChannels = new HashMap<>();
-        this.categories = new String[]{
-                "P1",
-                "P2",
-                "P3",
-                "P4",
-                "SR",
-                "other"
-        };
+        this.preferences = preferences;
+        this.refreshCoordinator = new RefreshCoordinator(model);
+        this.worker = null;
+        this.imageLoader = new ImageLoader(View.popupImageSize,
+                View.popupImageSize);
+        this.currentChannel = -1;
+        this.shownChannels = new ChannelContainer();
+        this.refreshedChannels = new ChannelHolder();
+        this.menuCategoryItems = Map.of();
+        this.categories = Model.getDefaultCategories();
         this.view.setMenuCategories(this.categories);
         this.view.setListeners(this);
+        this.view.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                refreshCoordinator.cancelRefresh();
+            }
+        });
+        tableListenerEvent();
+        showSnapshot();
         startWorker(this);
         scheduleWork();
     }
@@ -73,24 +120,29 @@ public class Controller implements ActionListener {
      */
     @Override
     public void actionPerformed(ActionEvent e) {
-        if (e.getActionCommand().equals("refreshButton")) {
+        String actionCommand = e.getActionCommand();
+        if (actionCommand.equals("refreshButton")) {
             startWorker(this);
-        }
-        // checks every channel.
-        for (String channelName : this.allChannels.keySet()) {
-            if (e.getActionCommand().equals(channelName)) {
-                clearTable();
-                loadTableAndListeners(allChannels.get(channelName));
-                break;
+        } else if (actionCommand.startsWith(channelCommandPrefix)) {
+            Channel channel = getChannel(actionCommand.substring(
+                    channelCommandPrefix.length()));
+            if (channel != null) {
+                loadTable(channel);
             }
         }
     }
 
     /**
-     * Creates a new swing worker for calling the run() method in Model.
+     * Creates a new swing worker for waiting on a refresh of the Model.
      *
      * <p>Runs the model on a separate thread for performance gains
      * and making sure that the GUI wont freeze when downloading API data.
+     * If a worker is already waiting on a refresh, no new refresh is
+     * started and that worker shows the result.
+     *
+     * Each channel is shown as soon as it's done, the process part adds
+     * new channels to the menu and reloads the table if it's the shown
+     * channel.
      *
      * The done part takes the information gathered from the model and stores
      * them in controller attributes. Also displays the channels in each
@@ -101,87 +153,241 @@ public class Controller implements ActionListener {
      * @param actionListener The actionListener
      */
     protected void startWorker(ActionListener actionListener) {
+        if (this.worker != null && !this.worker.isDone()) {
+            return;
+        }
         view.disableRefreshButton();
 
-        SwingWorker<ChannelContainer, Void> worker = new SwingWorker<ChannelContainer, Void>() {
+        this.worker = new SwingWorker<ChannelContainer, ChannelUpdate>() {
 
             /**
-             * Starts the Model run method on a separate thread.
+             * Waits for the refresh on a separate thread, and publishes
+             * each channel as soon as it's done.
              *
-             * <p>Makes API calls on a separate thread.</p>
+             * <p>The API calls are made by the RefreshCoordinator.</p>
              *
              * @return A ChannelContainer containing the channels and eventual
              *         error message.
+             * @throws Exception If the refresh failed or was cancelled.
              */
             @Override
-            protected ChannelContainer doInBackground() {
-                return model.run(categories);
+            protected ChannelContainer doInBackground() throws Exception {
+                return refreshCoordinator.refresh(categories,
+                        new Flow.Subscriber<ChannelUpdate>() {
+                    private Flow.Subscription subscription;
+
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        this.subscription = subscription;
+                        subscription.request(1);
+                    }
+
+                    @Override
+                    public void onNext(ChannelUpdate update) {
+                        publish(update);
+                        this.subscription.request(1);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) { }
+
+                    @Override
+                    public void onComplete() { }
+                }).get();
             };
 
+            /**
+             * Shows the channels that are done, before the rest of the
+             * refresh is done.
+             *
+             * @param updates The channels published since the last call.
+             */
+            @Override
+            protected void process(List<ChannelUpdate> updates) {
+                showChannelUpdates(updates, actionListener);
+            }
+
             /**
              * Writes the test result from the model to the gui. Or an error
              * message if there were an exception.
              */
             @Override
             protected void done() {
+                WorkerDoneEvent event = new WorkerDoneEvent();
+                event.begin();
                 try {
                     ChannelContainer channelContainer = get();
                     String errorMessage = channelContainer
                             .getErrorMessage();
+                    event.errorMessage = errorMessage;
                     // checks if channelContainer contains an error message
                     if (errorMessage == null) {
                         if (categories != null) {
-                            clearCategories();
-                            setMenuCategoryItems(channelContainer);
+                            showChannels(channelContainer, actionListener);
                         } else {
                             view.showErrorPopup("There exists no" +
                                     " channels that could be shown");
                         }
-
-                        // loads the table last seen.
-                        if (currentChannel != null) {
-                            clearTable();
-                            loadTableAndListeners(
-                                    allChannels.get(currentChannel));
-                        }
-
                     } else { view.showErrorPopup(errorMessage); }
                     view.defaultRefreshButton();
 
-                } catch (InterruptedException | ExecutionException e) {
+                } catch (ExecutionException | CancellationException e) {
+                    // a cancelled refresh has nothing to show
+                    if (!isCancellation(e)) {
+                        event.errorMessage = e.getMessage();
+                        view.showErrorPopup("An error occurred when" +
+                                " running swing worker: " + e.getMessage());
+                    } else {
+                        event.cancelled = true;
+                    }
+                    view.defaultRefreshButton();
+                } catch (InterruptedException e) {
+                    event.errorMessage = e.getMessage();
                     view.showErrorPopup("An error occurred when" +
                             " running swing worker: " + e.getMessage());
                 }
+                event.commit();
             }
+        };
+        this.worker.execute();
+    }
 
-            /*
-            Stores each channel in it's corresponding channel category.
-            Also displays the channels in the category tab.
-             */
-            private void setMenuCategoryItems(
-                    ChannelContainer channelContainer) {
-                Map<String, ChannelHolder> sortedChannels = channelContainer
-                        .getSortedChannels();
-                for (String category : categories) {
-                    ChannelHolder channelHolder = sortedChannels.get(category);
-                    if (channelHolder != null) {
-                        for (Channel channel : channelHolder.getChannels()) {
-                            if (channel != null) {
-                                String channelName = channel.getChannelName();
-                                /* stores the channels in a hashmap with
-                                each name as a key */
-                                if (!allChannels.containsKey(channelName)) {
-                                    allChannels.put(channelName, channel);
-                                }
-                                view.setMenuCategoryItem(category,
-                                        channelName, actionListener);
-                            }
-                        }
+    /*
+    Shows the channels stored in the snapshot from the last run, so that
+    they are visible while the model is fetching new data. Also shows the
+    table of the channel that was shown when the application was closed.
+     */
+    private void showSnapshot() {
+        ChannelContainer snapshot = this.model.loadSnapshot();
+        if (snapshot != null) {
+            if (this.preferences != null) {
+                this.currentChannel = this.preferences.getInt(
+                        currentChannelKey, -1);
+            }
+            showChannels(snapshot, this);
+        }
+    }
+
+    /*
+    Displays channels that are done during a refresh. The channels
+    replaces the shown channels with the same id, and new channels are
+    added last in their category. The table is reloaded if it shows one
+    of the channels.
+     */
+    private void showChannelUpdates(List<ChannelUpdate> updates,
+                                    ActionListener actionListener) {
+        Map<String, Map<String, String>> categoryItems = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> category
+                : this.menuCategoryItems.entrySet()) {
+            categoryItems.put(category.getKey(),
+                    new LinkedHashMap<>(category.getValue()));
+        }
+        boolean reloadTable = false;
+        for (ChannelUpdate update : updates) {
+            Channel channel = update.getChannel();
+            this.refreshedChannels.putChannel(channel);
+            categoryItems.computeIfAbsent(update.getCategory(),
+                    category -> new LinkedHashMap<>())
+                    .putIfAbsent(channelCommandPrefix
+                            + channel.getChannelId(),
+                            channel.getChannelName());
+            if (channel.getChannelId() == this.currentChannel) {
+                reloadTable = true;
+            }
+        }
+        if (!isSameMenu(categoryItems, this.menuCategoryItems)) {
+            view.updateMenuCategories(categoryItems, actionListener);
+            this.menuCategoryItems = categoryItems;
+        }
+        if (reloadTable) {
+            loadTable(getChannel(this.currentChannel));
+        }
+    }
+
+    /*
+    Displays the channels in each category, and reloads the table
+    last seen.
+     */
+    private void showChannels(ChannelContainer channelContainer,
+                              ActionListener actionListener) {
+        this.shownChannels = channelContainer;
+        this.refreshedChannels = new ChannelHolder();
+        setMenuCategoryItems(channelContainer, actionListener);
+
+        // loads the table last seen.
+        Channel channel = getChannel(currentChannel);
+        if (channel != null) {
+            loadTable(channel);
+        }
+    }
+
+    /*
+    Stores each channel in it's corresponding channel category.
+    Also displays the channels in the category tab, if they have changed
+    since they were last displayed.
+     */
+    private void setMenuCategoryItems(ChannelContainer channelContainer,
+                                      ActionListener actionListener) {
+        Map<String, ChannelHolder> sortedChannels = channelContainer
+                .getSortedChannels();
+        Map<String, Map<String, String>> categoryItems = new HashMap<>();
+        for (String category : categories) {
+            ChannelHolder channelHolder = sortedChannels.get(category);
+            Map<String, String> items = new LinkedHashMap<>();
+            if (channelHolder != null) {
+                for (Channel channel : channelHolder.getChannels()) {
+                    if (channel != null) {
+                        items.put(channelCommandPrefix
+                                + channel.getChannelId(),
+                                channel.getChannelName());
                     }
                 }
             }
-        };
-        worker.execute();
+            categoryItems.put(category, items);
+        }
+        if (!isSameMenu(categoryItems, this.menuCategoryItems)) {
+            view.updateMenuCategories(categoryItems, actionListener);
+            this.menuCategoryItems = categoryItems;
+        }
+    }
+
+    /*
+    Checks if two menus has the same channels in the same order in each
+    category. Map.equals alone doesn't compare the order.
+     */
+    private boolean isSameMenu(Map<String, Map<String, String>> menu,
+                               Map<String, Map<String, String>> other) {
+        if (!menu.equals(other)) {
+            return false;
+        }
+        for (Map.Entry<String, Map<String, String>> category
+                : menu.entrySet()) {
+            if (!new ArrayList<>(category.getValue().keySet()).equals(
+                    new ArrayList<>(other.get(category.getKey()).keySet()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a worker failed because the refresh was cancelled.
+     *
+     * <p>The CancellationException of the refresh is wrapped both by the
+     *    copy of the refresh future and by the SwingWorker, so the whole
+     *    cause chain is checked.</p>
+     *
+     * @param throwable The exception from SwingWorker.get.
+     * @return True if any cause is a CancellationException.
+     */
+    static boolean isCancellation(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null;
+             cause = cause.getCause()) {
+            if (cause instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /*
@@ -198,87 +404,78 @@ public class Controller implements ActionListener {
     }
 
     /*
-    Clears all the channels in each category.
+    Finds a channel by the id in it's action command, or returns null if
+    the id isn't a known channel.
      */
-    private void clearCategories() {
-        if (!this.allChannels.isEmpty()) {
-            view.clearCategories(this.allChannels.keySet(), this);
-            allChannels = new HashMap<>();
+    private Channel getChannel(String channelId) {
+        try {
+            return getChannel(Integer.parseInt(channelId));
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
     /*
-    Clears the current table displaying, and removes it's listeners.
+    Finds a channel by it's id, preferring a channel that is done during
+    the refresh in progress over the shown snapshot.
      */
-    private void clearTable() {
-        this.view.clearTableModel();
-        if (this.mouseAdapter != null) {
-            this.view.removeMouseListener(this.mouseAdapter);
+    private Channel getChannel(int channelId) {
+        Channel channel = this.refreshedChannels.getChannelById(channelId);
+        if (channel == null) {
+            channel = this.shownChannels.getChannelById(channelId);
         }
-    }
-
-    /*
-    Loads and displays the table containing episodes from a channel.
-    Also set's and describes a listener event.
-     */
-    private void loadTableAndListeners(Channel channel) {
-        final int hoursBefore = 12;
-        final int hoursAfter = 12;
-
-        loadTable(channel, hoursBefore, hoursAfter);
-        tableListenerEvent(channel, hoursBefore, hoursAfter);
+        return channel;
     }
 
     /*
     Sets a listener on the table, and describes what will happen when
-    an episode is clicked on.
+    an episode is clicked on. The episode is read from the table model, so
+    it's always the one shown in the clicked row.
      */
-    private void tableListenerEvent(Channel channel,
-                                    int hoursBefore,
-                                    int hoursAfter) {
-        this.mouseAdapter = new MouseAdapter() {
+    private void tableListenerEvent() {
+        this.view.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
                 JTable table = (JTable) e.getSource();
-                int index = table.getSelectedRow();
-                // makes sure that there is no index out of bounds
-                if (index >= 0) {
-                    setContentPopup(channel.getChannelContentByHourRange(
-                            hoursBefore, hoursAfter).get(index));
+                ChannelContent content = ((ScheduleTableModel) table
+                        .getModel()).getChannelContentAt(
+                                table.getSelectedRow());
+                if (content != null) {
+                    setContentPopup(content);
                 }
             }
-        };
-        this.view.addMouseListener(this.mouseAdapter);
+        });
     }
 
     /*
-    Displays the episodes in a channel in the hour range between,
-    hoursBefore and hoursAfter.
+    Displays the episodes of a channel in the table, replacing the
+    episodes shown before.
      */
-    private void loadTable(Channel channel, int hoursBefore, int hoursAfter) {
-        this.currentChannel = channel.getChannelName();
-        for (ChannelContent content : channel.getChannelContentByHourRange(
-                hoursBefore, hoursAfter)) {
-            String[] rowContent = new String[3];
-            rowContent[0] = content.getTitle();
-            rowContent[1] = content.getStartTimeString();
-            rowContent[2] = content.getEndTimeString();
-            this.view.updateTableModel(rowContent);
+    private void loadTable(Channel channel) {
+        final int hoursBefore = 12;
+        final int hoursAfter = 12;
+
+        if (channel.getChannelId() != this.currentChannel) {
+            this.currentChannel = channel.getChannelId();
+            if (this.preferences != null) {
+                this.preferences.putInt(currentChannelKey,
+                        this.currentChannel);
+            }
         }
+        List<ChannelContent> channelContent = channel
+                .getChannelContentByHourRange(hoursBefore, hoursAfter);
+        this.view.setTableContent(channelContent);
     }
 
     /*
-    Displays content of an episode in a popup window.
+    Displays content of an episode in a popup window. The image is loaded
+    in the background and shown in the popup when it arrives.
      */
     private void setContentPopup(ChannelContent content) {
         String description = content.getDescription();
         String title = content.getTitle();
         String imgURL = content.getImageURL();
-        ImageIcon img = null;
-        try {
-            img = new ImageIcon(ImageIO.read(new URL(imgURL)));
-        } catch (IOException e) { }
-        view.showContentPopup(img, title, description);
+        view.showContentPopup(imageLoader.load(imgURL), title, description);
     }
 }
 
@@ -0,0 +1,120 @@
+package Main;
+
+import Main.Model.Channel.ChannelContainer;
+import Main.Model.Export.ExportFormat;
+import Main.Model.Export.ScheduleWriter;
+import Main.Model.Model;
+import Main.Model.Parser.ParseTools;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * <h1>Exports the radio schedules without a GUI</h1>
+ *
+ * Runs the model once and writes every episode as JSON Lines or CSV to a
+ * file or to stdout. Never loads any AWT or Swing classes, so it can run
+ * on servers without a display, eg from cron.
+ *
+ * Usage: java Main/Exporter [--format jsonl|csv] [--output file]
+ *        [--categories P1,P2,...] [--days-before n] [--days-after n]
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class Exporter {
+
+    private static final String usage = "Usage: java Main/Exporter"
+            + " [--format jsonl|csv] [--output file]"
+            + " [--categories P1,P2,P3,P4,SR,other]"
+            + " [--days-before n] [--days-after n]";
+
+    /**
+     * Parses the arguments, runs the model and writes the schedules.
+     *
+     * <p>Exits with status 1 if the schedules couldn't be fetched or
+     *    written, and with status 2 if the arguments are invalid.</p>
+     *
+     * @param args The arguments described in the usage.
+     */
+    public static void main(String[] args) {
+        ExportFormat format = ExportFormat.JSONL;
+        String output = "-";
+        String[] categories = Model.getDefaultCategories();
+        int daysBefore = 1;
+        int daysAfter = 1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--format":
+                        format = ExportFormat.valueOf(
+                                value.trim().toUpperCase());
+                        break;
+                    case "--output":
+                        output = value.trim();
+                        break;
+                    case "--categories":
+                        categories = value.split(",");
+                        break;
+                    case "--days-before":
+                        daysBefore = Integer.parseInt(value.trim());
+                        break;
+                    case "--days-after":
+                        daysAfter = Integer.parseInt(value.trim());
+                        break;
+                    default:
+                        exit(2, usage);
+                }
+                i++;
+            }
+        } catch (NullPointerException | IllegalArgumentException e) {
+            exit(2, usage);
+        }
+
+        ParseTools.setDefaultTransport();
+        ChannelContainer channelContainer = new Model(null, daysBefore,
+                daysAfter).run(categories);
+        if (channelContainer.getErrorMessage() != null) {
+            exit(1, channelContainer.getErrorMessage());
+        }
+        try {
+            write(channelContainer, categories, format, output);
+        } catch (IOException e) {
+            exit(1, "Couldn't write the schedules: " + e.getMessage());
+        }
+    }
+
+    /*
+    Writes the schedules to a file, or to stdout if the output is -.
+     */
+    private static void write(ChannelContainer channelContainer,
+                              String[] categories, ExportFormat format,
+                              String output) throws IOException {
+        if (output.equals("-")) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                    System.out, StandardCharsets.UTF_8));
+            new ScheduleWriter(out, format).write(channelContainer,
+                    categories);
+        } else {
+            try (Writer out = Files.newBufferedWriter(Paths.get(output),
+                    StandardCharsets.UTF_8)) {
+                new ScheduleWriter(out, format).write(channelContainer,
+                        categories);
+            }
+        }
+    }
+
+    /*
+    Prints a message to stderr and exits with a status.
+     */
+    private static void exit(int status, String message) {
+        System.err.println(message);
+        System.exit(status);
+    }
+}
@@ -1,12 +1,17 @@
 package Main.Model.Channel;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * <h1>Holds information regarding a channel</h1>
  *
+ * A channel is frozen when it becomes part of a published snapshot. After
+ * that neither the channel nor it's episodes can be changed, and it can be
+ * read from any thread without locking.
+ *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
  * @since 2022-01-13
@@ -17,13 +22,14 @@ public class Channel {
     private int channelId;
     private String channelContentErrorMessage;
     private ArrayList<ChannelContent> channelContent;
-    private ArrayList<ChannelContent> channelContentByRange;
+    private volatile ChannelContentIndex channelContentIndex;
     private String scheduleURL;
     private String imageURLString;
     private String colorCode;
     private String channelDescription;
     private String siteURLString;
     private String channelType;
+    private boolean frozen;
 
     /**
      * Initializes the channelContent attribute, and sets
@@ -33,47 +39,80 @@ public class Channel {
 
         this.channelContent = new ArrayList<>();
         this.channelContentErrorMessage = null;
+        this.frozen = false;
+    }
+
+    /**
+     * Initializes a channel without content, using the attributes of
+     * another channel.
+     *
+     * <p>Only the channel information is copied, eg the name, id and
+     * schedule url. Not the episodes or the error message.</p>
+     *
+     * @param metadata The channel whose attributes will be copied.
+     */
+    public Channel(Channel metadata) {
+        this();
+        this.channelName = metadata.channelName;
+        this.channelId = metadata.channelId;
+        this.scheduleURL = metadata.scheduleURL;
+        this.imageURLString = metadata.imageURLString;
+        this.colorCode = metadata.colorCode;
+        this.channelDescription = metadata.channelDescription;
+        this.siteURLString = metadata.siteURLString;
+        this.channelType = metadata.channelType;
     }
 
     /* Setters */
     public void setChannelName(String channelName) {
+        checkNotFrozen();
         this.channelName = channelName;
     }
 
     public void setChannelId(int channelId) {
+        checkNotFrozen();
         this.channelId = channelId;
     }
 
     public void setChannelContentErrorMessage(
             String channelContentErrorMessage) {
+        checkNotFrozen();
         this.channelContentErrorMessage = channelContentErrorMessage;
     }
 
     public void addChannelContent(ChannelContent channelContent) {
+        checkNotFrozen();
         this.channelContent.add(channelContent);
+        this.channelContentIndex = null;
     }
 
     public void setScheduleURL(String scheduleURL) {
+        checkNotFrozen();
         this.scheduleURL = scheduleURL;
     }
 
     public void setImageURLString(String imageURLString) {
+        checkNotFrozen();
         this.imageURLString = imageURLString;
     }
 
     public void setColorCode(String colorCode) {
+        checkNotFrozen();
         this.colorCode = colorCode;
     }
 
     public void setChannelDescription(String channelDescription) {
+        checkNotFrozen();
         this.channelDescription = channelDescription;
     }
 
     public void setSiteURLString(String siteURLString) {
+        checkNotFrozen();
         this.siteURLString = siteURLString;
     }
 
     public void setChannelType(String channelType) {
+        checkNotFrozen();
         this.channelType = channelType;
     }
 
@@ -86,15 +125,41 @@ public class Channel {
         return channelContentErrorMessage;
     }
 
-    public ArrayList<ChannelContent> getChannelContent() {
-        return this.channelContent;
+    /**
+     * Retrieves the episodes in the order they were added.
+     *
+     * @return An unmodifiable list, use addChannelContent to add episodes.
+     */
+    public List<ChannelContent> getChannelContent() {
+        return Collections.unmodifiableList(this.channelContent);
+    }
+
+    /**
+     * Makes the channel and it's episodes unmodifiable, and builds the
+     * index of the episodes. Setters throws an IllegalStateException
+     * after this.
+     */
+    public void freeze() {
+        if (this.frozen) {
+            return;
+        }
+        for (ChannelContent content : this.channelContent) {
+            content.freeze();
+        }
+        getChannelContentIndex();
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
     }
 
     /**
      * Gets the episodes in a certain hour range.
      *
      * <p>Retrieves an ArrayList of ChannelContent in an hour frame
-     * between hoursBefore and hoursAfter the current dateTime.
+     * between hoursBefore and hoursAfter the current dateTime. The
+     * current time is read on every call, so the range follows the clock.
      *
      * The end time of the episode is the first variable in the range,
      * and the start time of the episode is the second variable
@@ -102,32 +167,60 @@ public class Channel {
      *
      * @param hoursBefore
      * @param hoursAfter
-     * @return An ArrayList containing the episodes in the hours range.
+     * @return An ArrayList containing the episodes in the hours range,
+     *         sorted by start time.
      */
     public ArrayList<ChannelContent> getChannelContentByHourRange(
             int hoursBefore, int hoursAfter) {
-        if (this.channelContentByRange == null) {
-            this.channelContentByRange = new ArrayList<>();
-
-            DateTimeFormatter format = DateTimeFormatter
-                    .ofPattern("yyyy-MM-dd '|' HH:mm");
-
-            LocalDateTime currentDateTime = LocalDateTime.now();
-            LocalDateTime firstRange = currentDateTime.minusHours(hoursBefore);
-            LocalDateTime lastRange = currentDateTime.plusHours(hoursAfter);
-
-            for (ChannelContent content : this.channelContent) {
-                LocalDateTime startDate = LocalDateTime.parse(content
-                        .getStartTimeString(), format);
-                LocalDateTime endDate = LocalDateTime.parse(content
-                        .getEndTimeString(), format);
-                if (endDate.isAfter(firstRange)
-                        && startDate.isBefore(lastRange)) {
-                    channelContentByRange.add(content);
-                }
-            }
+        long currentTime = Instant.now().getEpochSecond();
+        return getChannelContentByTimeRange(
+                currentTime - hoursBefore * 3600L,
+                currentTime + hoursAfter * 3600L);
+    }
+
+    /**
+     * Gets the episodes that ends after from and starts before to.
+     *
+     * @param from The start of the range in epoch seconds.
+     * @param to The end of the range in epoch seconds.
+     * @return An ArrayList containing the episodes in the range,
+     *         sorted by start time.
+     */
+    public ArrayList<ChannelContent> getChannelContentByTimeRange(
+            long from, long to) {
+        return getChannelContentIndex().getContentInRange(from, to);
+    }
+
+    /**
+     * Gets the episode that is broadcast at an instant.
+     *
+     * @param instant The instant in epoch seconds.
+     * @return The episode, or null if nothing is broadcast at the instant.
+     */
+    public ChannelContent getChannelContentAt(long instant) {
+        return getChannelContentIndex().getContentAt(instant);
+    }
+
+    /*
+    Retrieves the index of the episodes, and builds it if episodes have
+    been added since it was last built.
+     */
+    private ChannelContentIndex getChannelContentIndex() {
+        ChannelContentIndex index = this.channelContentIndex;
+        if (index == null) {
+            index = new ChannelContentIndex(this.channelContent);
+            this.channelContentIndex = index;
+        }
+        return index;
+    }
+
+    /*
+    Throws an exception if the channel is frozen.
+     */
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new IllegalStateException("The channel is frozen");
         }
-        return this.channelContentByRange;
     }
 
     public String getScheduleURL() {
@@ -1,12 +1,15 @@
 package Main.Model.Channel;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * <h1>Holds a Map of the categories and it's corresponding channels.</h1>
  *
- * Also holds en eventual error message.
+ * Also holds en eventual error message. The Model publishes frozen
+ * containers as snapshots, which can't be changed and can be read from
+ * any thread without locking.
  *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
@@ -16,20 +19,26 @@ public class ChannelContainer {
 
     private String errorMessage;
     private Map<String, ChannelHolder> sortedChannels;
+    private Map<Integer, Channel> channelsById;
+    private boolean frozen;
 
     /**
      * Initializes attributes.
      */
     public ChannelContainer() {
         this.sortedChannels = new HashMap<>();
+        this.channelsById = null;
         this.errorMessage = null;
+        this.frozen = false;
     }
 
     public void setErrorMessage(String errorMessage) {
+        checkNotFrozen();
         this.errorMessage = errorMessage;
     }
 
     public void setSortedChannels(Map<String, ChannelHolder> sortedChannels) {
+        checkNotFrozen();
         this.sortedChannels = sortedChannels;
     }
 
@@ -37,7 +46,66 @@ public class ChannelContainer {
         return errorMessage;
     }
 
+    /**
+     * Retrieves the channels of each category.
+     *
+     * @return The channels, an unmodifiable map if the container is frozen.
+     */
     public Map<String, ChannelHolder> getSortedChannels() {
         return sortedChannels;
     }
+
+    /**
+     * Retrieves a channel in any of the categories by it's id.
+     *
+     * @param channelId The id of the channel.
+     * @return A channel object. Null if the channel doesn't exist.
+     */
+    public Channel getChannelById(int channelId) {
+        if (this.channelsById != null) {
+            return this.channelsById.get(channelId);
+        }
+        for (ChannelHolder channelHolder : this.sortedChannels.values()) {
+            Channel channel = channelHolder.getChannelById(channelId);
+            if (channel != null) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes the container, it's holders and channels unmodifiable, and
+     * indexes the channels by id. Setters throws an IllegalStateException
+     * after this.
+     */
+    public void freeze() {
+        if (this.frozen) {
+            return;
+        }
+        Map<Integer, Channel> channelsById = new HashMap<>();
+        for (ChannelHolder channelHolder : this.sortedChannels.values()) {
+            channelHolder.freeze();
+            for (Channel channel : channelHolder.getChannels()) {
+                channelsById.putIfAbsent(channel.getChannelId(), channel);
+            }
+        }
+        this.sortedChannels = Collections.unmodifiableMap(
+                new HashMap<>(this.sortedChannels));
+        this.channelsById = channelsById;
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /*
+    Throws an exception if the container is frozen.
+     */
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new IllegalStateException("The channel container is frozen");
+        }
+    }
 }
@@ -1,52 +1,82 @@
 package Main.Model.Channel;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
 /**
  * <h1>Holds information regarding each episode</h1>
  *
+ * The start and end times are stored as epoch seconds. They are only
+ * formatted into strings, in Swedish time, when they are displayed.
+ *
+ * An episode is frozen when it becomes part of a published snapshot, and
+ * can't be changed after that.
+ *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
  * @since 2022-01-13
  */
 public class ChannelContent {
 
+    /**
+     * The time used when the start or end time is unknown.
+     */
+    public static final long unknownTime = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter displayFormat = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd '|' HH:mm")
+            .withZone(ZoneId.of("Europe/Stockholm"));
+
     private String errorMessage;
     private String episodeID;
     private String title;
     private String description;
-    private String startTimeString;
-    private String endTimeString;
+    private long startTime;
+    private long endTime;
     private String imageURL;
+    private boolean frozen;
 
     public ChannelContent() {
+        this.frozen = false;
         this.errorMessage = null;
+        this.startTime = unknownTime;
+        this.endTime = unknownTime;
     }
 
     /* Setters */
     public void setErrorMessage(String errorMessage) {
+        checkNotFrozen();
         this.errorMessage = errorMessage;
     }
 
     public void setEpisodeID(String episodeID) {
+        checkNotFrozen();
         this.episodeID = episodeID;
     }
 
     public void setTitle(String title) {
+        checkNotFrozen();
         this.title = title;
     }
 
     public void setDescription(String description) {
+        checkNotFrozen();
         this.description = description;
     }
 
-    public void setStartTimeString(String startTimeString) {
-        this.startTimeString = startTimeString;
+    public void setStartTime(long startTime) {
+        checkNotFrozen();
+        this.startTime = startTime;
     }
 
-    public void setEndTimeString(String endTimeString) {
-        this.endTimeString = endTimeString;
+    public void setEndTime(long endTime) {
+        checkNotFrozen();
+        this.endTime = endTime;
     }
 
     public void setImageURL(String imageURL) {
+        checkNotFrozen();
         this.imageURL = imageURL;
     }
 
@@ -67,15 +97,64 @@ public class ChannelContent {
         return description;
     }
 
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Formats the start time in Swedish time, eg 2022-01-01 | 12:00.
+     *
+     * @return The formatted start time, or null if it's unknown.
+     */
     public String getStartTimeString() {
-        return startTimeString;
+        return formatTime(startTime);
     }
 
+    /**
+     * Formats the end time in Swedish time, eg 2022-01-01 | 12:00.
+     *
+     * @return The formatted end time, or null if it's unknown.
+     */
     public String getEndTimeString() {
-        return endTimeString;
+        return formatTime(endTime);
     }
 
     public String getImageURL() {
         return imageURL;
     }
+
+    /**
+     * Makes the episode unmodifiable. Setters throws an
+     * IllegalStateException after this.
+     */
+    public void freeze() {
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /*
+    Throws an exception if the episode is frozen.
+     */
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new IllegalStateException("The episode is frozen");
+        }
+    }
+
+    /*
+    Formats epoch seconds for display.
+     */
+    private static String formatTime(long epochSecond) {
+        if (epochSecond == unknownTime) {
+            return null;
+        }
+        return displayFormat.format(Instant.ofEpochSecond(epochSecond));
+    }
 }
@@ -0,0 +1,189 @@
+package Main.Model.Channel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <h1>Finds the episodes of a channel by time</h1>
+ *
+ * Keeps the episodes sorted by start time, with the start times in a
+ * primitive array and the end times in a tree where each node holds the
+ * largest end time of it's episodes. The episodes that starts before an
+ * instant are found with binary search, and the tree skips the ones that
+ * have already ended. A time range is found in O((k + 1) log n) where k is
+ * the number of episodes found, and the episode at an instant in
+ * O(log n), also when a long episode overlaps many shorter ones.
+ *
+ * Episodes with an unknown start or end time are left out. The index is
+ * immutable, and is rebuilt by Channel when episodes are added.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class ChannelContentIndex {
+
+    private final ChannelContent[] contents;
+    private final long[] startTimes;
+    // node 1 covers all episodes, node i has the children 2i and 2i + 1
+    private final long[] maxEndTimes;
+
+    /**
+     * Builds the index from a list of episodes.
+     *
+     * @param channelContent The episodes, in any order.
+     */
+    public ChannelContentIndex(List<ChannelContent> channelContent) {
+        this.contents = channelContent.stream()
+                .filter(content ->
+                        content.getStartTime() != ChannelContent.unknownTime
+                        && content.getEndTime() != ChannelContent.unknownTime)
+                .sorted(Comparator.comparingLong(ChannelContent::getStartTime))
+                .toArray(ChannelContent[]::new);
+        int size = this.contents.length;
+        this.startTimes = new long[size];
+        this.maxEndTimes = new long[Math.max(1, 4 * size)];
+        for (int i = 0; i < size; i++) {
+            this.startTimes[i] = this.contents[i].getStartTime();
+        }
+        if (size > 0) {
+            build(1, 0, size);
+        }
+    }
+
+    /**
+     * Retrieves the episodes that overlaps a time range.
+     *
+     * <p>An episode overlaps the range if it ends after from and starts
+     *    before to.</p>
+     *
+     * @param from The start of the range in epoch seconds.
+     * @param to The end of the range in epoch seconds.
+     * @return The episodes sorted by start time.
+     */
+    public ArrayList<ChannelContent> getContentInRange(long from, long to) {
+        int last = firstIndexAtOrAfter(this.startTimes, to);
+        ArrayList<ChannelContent> range = new ArrayList<>();
+        if (last > 0) {
+            collectEndingAfter(1, 0, this.contents.length, last, from, range);
+        }
+        return range;
+    }
+
+    /**
+     * Retrieves the episode that is broadcast at an instant.
+     *
+     * @param instant The instant in epoch seconds.
+     * @return The episode, or null if nothing is broadcast. If episodes
+     *         overlap, the one that started last is returned.
+     */
+    public ChannelContent getContentAt(long instant) {
+        int last = firstIndexAfter(this.startTimes, instant);
+        if (last == 0) {
+            return null;
+        }
+        int i = findLastEndingAfter(1, 0, this.contents.length, last,
+                instant);
+        return i < 0 ? null : this.contents[i];
+    }
+
+    /**
+     * Retrieves the number of episodes in the index.
+     *
+     * @return The number of episodes with known times.
+     */
+    public int size() {
+        return this.contents.length;
+    }
+
+    /*
+    Stores the largest end time of the episodes between low and high in a
+    node, and in it's children.
+     */
+    private long build(int node, int low, int high) {
+        if (high - low == 1) {
+            this.maxEndTimes[node] = this.contents[low].getEndTime();
+        } else {
+            int middle = (low + high) >>> 1;
+            this.maxEndTimes[node] = Math.max(build(2 * node, low, middle),
+                    build(2 * node + 1, middle, high));
+        }
+        return this.maxEndTimes[node];
+    }
+
+    /*
+    Adds the episodes of a node that are before the position last and ends
+    after an instant, in order. Nodes where every episode has ended are
+    skipped.
+     */
+    private void collectEndingAfter(int node, int low, int high, int last,
+                                    long instant,
+                                    List<ChannelContent> range) {
+        if (low >= last || this.maxEndTimes[node] <= instant) {
+            return;
+        }
+        if (high - low == 1) {
+            range.add(this.contents[low]);
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        collectEndingAfter(2 * node, low, middle, last, instant, range);
+        collectEndingAfter(2 * node + 1, middle, high, last, instant, range);
+    }
+
+    /*
+    Finds the last position of a node that is before the position last and
+    ends after an instant, or -1 if there is none.
+     */
+    private int findLastEndingAfter(int node, int low, int high, int last,
+                                    long instant) {
+        if (low >= last || this.maxEndTimes[node] <= instant) {
+            return -1;
+        }
+        if (high - low == 1) {
+            return low;
+        }
+        int middle = (low + high) >>> 1;
+        int i = findLastEndingAfter(2 * node + 1, middle, high, last,
+                instant);
+        return i >= 0 ? i
+                : findLastEndingAfter(2 * node, low, middle, last, instant);
+    }
+
+    /*
+    Finds the first position in a sorted array with a value larger than
+    the key, or the length of the array if there is none.
+     */
+    private static int firstIndexAfter(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /*
+    Finds the first position in a sorted array with a value larger than or
+    equal to the key, or the length of the array if there is none.
+     */
+    private static int firstIndexAtOrAfter(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -1,10 +1,18 @@
 package Main.Model.Channel;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * <h1>Holds multiple channels</h1>
  *
+ * The channels are kept in the order they were added, and are also indexed
+ * by name and id so that they can be looked up in constant time. A frozen
+ * holder and it's channels can't be changed.
+ *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
  * @since 2022-01-13
@@ -12,27 +20,71 @@ import java.util.ArrayList;
 public class ChannelHolder {
 
     private ArrayList<Channel> channels;
+    private Map<String, Channel> channelsByName;
+    private Map<Integer, Channel> channelsById;
     private String channelsErrorMessage;
+    private boolean frozen;
 
     /**
      * Initializes attributes.
      */
     public ChannelHolder() {
         this.channels = new ArrayList<>();
+        this.channelsByName = new HashMap<>();
+        this.channelsById = new HashMap<>();
         this.channelsErrorMessage = null;
+        this.frozen = false;
     }
 
     /**
-     * Adds a channel to the channels ArrayList
+     * Adds a channel to the channels ArrayList and the indexes.
+     *
+     * <p>If several channels has the same name or id, the lookups
+     *    returns the one that was added first.</p>
      *
      * @param channel The channel that will be added.
      */
     public void addChannel(Channel channel) {
+        checkNotFrozen();
         this.channels.add(channel);
+        if (channel.getChannelName() != null) {
+            this.channelsByName.putIfAbsent(channel.getChannelName(),
+                    channel);
+        }
+        this.channelsById.putIfAbsent(channel.getChannelId(), channel);
+    }
+
+    /**
+     * Adds a channel, or replaces the channel with the same id. A
+     * replaced channel keeps it's position.
+     *
+     * @param channel The channel that will be added or replaced.
+     */
+    public void putChannel(Channel channel) {
+        checkNotFrozen();
+        Channel old = this.channelsById.get(channel.getChannelId());
+        if (old == null) {
+            addChannel(channel);
+            return;
+        }
+        this.channels.set(this.channels.indexOf(old), channel);
+        this.channelsById.put(channel.getChannelId(), channel);
+        if (old.getChannelName() != null) {
+            this.channelsByName.remove(old.getChannelName(), old);
+        }
+        if (channel.getChannelName() != null) {
+            this.channelsByName.putIfAbsent(channel.getChannelName(),
+                    channel);
+        }
     }
 
-    public ArrayList<Channel> getChannels() {
-        return this.channels;
+    /**
+     * Retrieves the channels in the order they were added.
+     *
+     * @return An unmodifiable list, use addChannel to add channels.
+     */
+    public List<Channel> getChannels() {
+        return Collections.unmodifiableList(this.channels);
     }
 
     /**
@@ -42,21 +94,49 @@ public class ChannelHolder {
      * @return A channel object. Null if the channel doesn't exist.
      */
     public Channel getChannelByName(String name) {
-        Channel channel = null;
-        for (Channel each : this.channels) {
-            if (each.getChannelName().compareTo(name) == 0) {
-                channel = each;
-                break;
-            }
-        }
-        return channel;
+        return this.channelsByName.get(name);
+    }
+
+    /**
+     * Retrieves the channel by it's id.
+     *
+     * @param channelId The id of the channel.
+     * @return A channel object. Null if the channel doesn't exist.
+     */
+    public Channel getChannelById(int channelId) {
+        return this.channelsById.get(channelId);
     }
 
     public void setChannelsErrorMessage(String channelsErrorMessage) {
+        checkNotFrozen();
         this.channelsErrorMessage = channelsErrorMessage;
     }
 
     public String getChannelsErrorMessage() {
         return channelsErrorMessage;
     }
+
+    /**
+     * Makes the holder and it's channels unmodifiable. Adding channels
+     * throws an IllegalStateException after this.
+     */
+    public void freeze() {
+        for (Channel channel : this.channels) {
+            channel.freeze();
+        }
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /*
+    Throws an exception if the holder is frozen.
+     */
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new IllegalStateException("The channel holder is frozen");
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package Main.Model;
+
+import Main.Model.Channel.Channel;
+
+/**
+ * <h1>A channel that is done during a refresh</h1>
+ *
+ * Published by the RefreshCoordinator as soon as all of the channel's
+ * schedules are parsed, before the rest of the channels are done.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class ChannelUpdate {
+
+    private final String category;
+    private final Channel channel;
+
+    /**
+     * Initializes attributes.
+     *
+     * @param category The category the channel is sorted into.
+     * @param channel The channel with all of it's episodes.
+     */
+    public ChannelUpdate(String category, Channel channel) {
+        this.category = category;
+        this.channel = channel;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+}
@@ -0,0 +1,45 @@
+package Main.Model.Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <h1>A JFR event for a request to the API</h1>
+ *
+ * Lasts from the request until the response body is read or closed, so
+ * that parsing a streamed body happens within the event. Disabled unless
+ * it's turned on by a recording, eg with the radio.jfc settings.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+@Name("radio.Fetch")
+@Label("API Fetch")
+@Category({"Radio", "Network"})
+@Description("A request to the SverigesRadio API")
+@Enabled(false)
+@StackTrace(false)
+public class FetchEvent extends Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Status")
+    @Description("The response status, 0 if there was no response")
+    public int status;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Cached")
+    @Description("True if the body came from the HTTP cache")
+    public boolean cached;
+}
@@ -0,0 +1,43 @@
+package Main.Model.Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <h1>A JFR event for parsing a channel list or a schedule</h1>
+ *
+ * Disabled unless it's turned on by a recording, eg with the radio.jfc
+ * settings.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+@Name("radio.Parse")
+@Label("Document Parse")
+@Category({"Radio", "Parser"})
+@Description("Parsing a channel list or a schedule from the API")
+@Enabled(false)
+@StackTrace(false)
+public class ParseEvent extends Event {
+
+    @Label("Document")
+    @Description("channels or schedule")
+    public String document;
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Items")
+    @Description("The number of channels or episodes parsed")
+    public int items;
+
+    @Label("Reused")
+    @Description("True if an unchanged schedule wasn't parsed again")
+    public boolean reused;
+}
@@ -0,0 +1,35 @@
+package Main.Model.Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <h1>A JFR event for a run of the model</h1>
+ *
+ * Disabled unless it's turned on by a recording, eg with the radio.jfc
+ * settings.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+@Name("radio.Refresh")
+@Label("Refresh")
+@Category({"Radio", "Model"})
+@Description("Fetching, parsing and sorting every channel in Model.run")
+@Enabled(false)
+@StackTrace(false)
+public class RefreshEvent extends Event {
+
+    @Label("Channels")
+    public int channels;
+
+    @Label("Error Message")
+    @Description("Why the run failed, null if it succeeded")
+    public String errorMessage;
+}
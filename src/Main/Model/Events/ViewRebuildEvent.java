@@ -0,0 +1,36 @@
+package Main.Model.Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <h1>A JFR event for rebuilding the table or the menu on the EDT</h1>
+ *
+ * Disabled unless it's turned on by a recording, eg with the radio.jfc
+ * settings.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+@Name("radio.ViewRebuild")
+@Label("View Rebuild")
+@Category({"Radio", "Swing"})
+@Description("Loading episodes into the table or channels into the menu")
+@Enabled(false)
+@StackTrace(false)
+public class ViewRebuildEvent extends Event {
+
+    @Label("Component")
+    @Description("table or menu")
+    public String component;
+
+    @Label("Items")
+    @Description("The number of episodes or menu items")
+    public int items;
+}
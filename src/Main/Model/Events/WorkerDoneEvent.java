@@ -0,0 +1,35 @@
+package Main.Model.Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <h1>A JFR event for showing the result of a refresh on the EDT</h1>
+ *
+ * Disabled unless it's turned on by a recording, eg with the radio.jfc
+ * settings.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+@Name("radio.WorkerDone")
+@Label("Worker Done")
+@Category({"Radio", "Swing"})
+@Description("SwingWorker.done showing the result of a refresh")
+@Enabled(false)
+@StackTrace(false)
+public class WorkerDoneEvent extends Event {
+
+    @Label("Cancelled")
+    public boolean cancelled;
+
+    @Label("Error Message")
+    @Description("The error that was shown, null if there was none")
+    public String errorMessage;
+}
@@ -0,0 +1,16 @@
+package Main.Model.Export;
+
+/**
+ * <h1>The formats the schedules can be exported in</h1>
+ *
+ * JSONL writes one JSON object per episode and line. CSV writes a header
+ * line followed by one line per episode, quoted as in RFC 4180.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public enum ExportFormat {
+    JSONL,
+    CSV
+}
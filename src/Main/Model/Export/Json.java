@@ -0,0 +1,73 @@
+package Main.Model.Export;
+
+/**
+ * <h1>Helps writing JSON</h1>
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class Json {
+
+    private Json() { }
+
+    /**
+     * Appends a quoted and escaped JSON string, or null.
+     *
+     * @param json The JSON that is being built.
+     * @param value The string, or null.
+     * @return The json parameter.
+     */
+    public static StringBuilder appendString(StringBuilder json,
+                                             String value) {
+        if (value == null) {
+            return json.append("null");
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                    break;
+            }
+        }
+        return json.append('"');
+    }
+
+    /**
+     * Appends a name and a string value, followed by a comma unless it's
+     * the last member of the object.
+     *
+     * @param json The JSON that is being built.
+     * @param name The name of the member.
+     * @param value The string, or null.
+     * @param last True if it's the last member.
+     * @return The json parameter.
+     */
+    public static StringBuilder appendMember(StringBuilder json, String name,
+                                             String value, boolean last) {
+        appendString(json, name).append(':');
+        appendString(json, value);
+        return last ? json : json.append(',');
+    }
+}
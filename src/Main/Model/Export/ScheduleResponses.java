@@ -0,0 +1,308 @@
+package Main.Model.Export;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContainer;
+import Main.Model.Channel.ChannelContent;
+import Main.Model.Channel.ChannelHolder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * <h1>Serializes the channels of a snapshot into JSON responses</h1>
+ *
+ * Each response is serialized once into UTF-8 bytes and cached for as
+ * long as the snapshot is the current one. The snapshot is frozen, so a
+ * cached response is always the same as a new one would be. Responses that
+ * depend on the current time are cached per minute, and computed for the
+ * start of that minute. Schedules of a time range chosen by the client,
+ * and unknown categories, are serialized for each request instead, so
+ * that clients can't fill the cache.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class ScheduleResponses {
+
+    private static final int maxCachedResponses = 4096;
+    private static final long defaultHoursBefore = 12;
+    private static final long defaultHoursAfter = 12;
+
+    /**
+     * The longest time range of a schedule, in seconds.
+     */
+    public static final long maxRangeSeconds = 7 * 24 * 3600;
+
+    private final Supplier<ChannelContainer> snapshot;
+    private final String[] categories;
+    private final AtomicReference<CachedResponses> cache;
+
+    /**
+     * Initializes attributes.
+     *
+     * @param snapshot Retrieves the current snapshot, eg Model.getSnapshot.
+     *                 Must return a frozen container, or null.
+     * @param categories The categories in the order they are listed.
+     */
+    public ScheduleResponses(Supplier<ChannelContainer> snapshot,
+                             String[] categories) {
+        this.snapshot = snapshot;
+        this.categories = categories.clone();
+        this.cache = new AtomicReference<>();
+    }
+
+    /**
+     * Checks if there is a snapshot to serve.
+     *
+     * @return False until the first snapshot is loaded.
+     */
+    public boolean hasSnapshot() {
+        return this.snapshot.get() != null;
+    }
+
+    /**
+     * Retrieves the channels of a category, or of every category.
+     *
+     * @param category The category, or null for every category.
+     * @return A JSON array of channels, empty if there is no snapshot or
+     *         the category has no channels.
+     */
+    public byte[] getChannels(String category) {
+        String key = category == null
+                || Arrays.asList(this.categories).contains(category)
+                ? "channels:" + category : null;
+        return getResponse(key, container -> {
+            StringBuilder json = new StringBuilder(4096).append('[');
+            boolean first = true;
+            for (String each : this.categories) {
+                ChannelHolder channelHolder = container.getSortedChannels()
+                        .get(each);
+                if (channelHolder == null
+                        || (category != null && !category.equals(each))) {
+                    continue;
+                }
+                for (Channel channel : channelHolder.getChannels()) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    appendChannel(json, each, channel);
+                    first = false;
+                }
+            }
+            return json.append(']');
+        });
+    }
+
+    /**
+     * Retrieves the episodes of a channel that overlaps a time range.
+     *
+     * @param channelId The id of the channel.
+     * @param from The start of the range in epoch seconds, or null for
+     *             12 hours before now.
+     * @param to The end of the range in epoch seconds, or null for
+     *           12 hours after now.
+     * @param now The current time in epoch seconds.
+     * @return A JSON object with the range and the episodes, or null if
+     *         the channel doesn't exist.
+     * @throws IllegalArgumentException If the range ends before it
+     *                                  starts, or is longer than
+     *                                  maxRangeSeconds.
+     */
+    public byte[] getSchedule(int channelId, Long from, Long to, long now) {
+        long minute = Math.floorDiv(now, 60) * 60;
+        long rangeFrom = from != null ? from
+                : minute - defaultHoursBefore * 3600;
+        long rangeTo = to != null ? to : minute + defaultHoursAfter * 3600;
+        if (rangeTo < rangeFrom) {
+            throw new IllegalArgumentException("The time range ends before "
+                    + "it starts");
+        }
+        if (rangeFrom < rangeTo - maxRangeSeconds) {
+            throw new IllegalArgumentException("The time range is longer "
+                    + "than " + maxRangeSeconds / 3600 + " hours");
+        }
+        // only the default range is cached, it changes once a minute
+        String key = from == null && to == null
+                ? "schedule:" + channelId + ":" + minute : null;
+        return getResponse(key, container -> {
+            Channel channel = container.getChannelById(channelId);
+            if (channel == null) {
+                return null;
+            }
+            StringBuilder json = new StringBuilder(8192).append('{');
+            json.append("\"channelId\":").append(channelId).append(',');
+            Json.appendMember(json, "from", formatTime(rangeFrom), false);
+            Json.appendMember(json, "to", formatTime(rangeTo), false);
+            json.append("\"episodes\":[");
+            boolean first = true;
+            for (ChannelContent content : channel
+                    .getChannelContentByTimeRange(rangeFrom, rangeTo)) {
+                if (!first) {
+                    json.append(',');
+                }
+                appendEpisode(json, content);
+                first = false;
+            }
+            return json.append("]}");
+        });
+    }
+
+    /**
+     * Retrieves the episode that is broadcast right now on every channel.
+     *
+     * @param now The current time in epoch seconds.
+     * @return A JSON array with an object per channel, where the episode
+     *         is null if nothing is broadcast.
+     */
+    public byte[] getNowPlaying(long now) {
+        long minute = Math.floorDiv(now, 60) * 60;
+        return getResponse("now:" + minute, container -> {
+            StringBuilder json = new StringBuilder(8192).append('[');
+            boolean first = true;
+            for (String category : this.categories) {
+                ChannelHolder channelHolder = container.getSortedChannels()
+                        .get(category);
+                if (channelHolder == null) {
+                    continue;
+                }
+                for (Channel channel : channelHolder.getChannels()) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    json.append("{\"channelId\":")
+                            .append(channel.getChannelId()).append(',');
+                    Json.appendMember(json, "channelName",
+                            channel.getChannelName(), false);
+                    Json.appendMember(json, "category", category, false);
+                    json.append("\"episode\":");
+                    ChannelContent content = channel
+                            .getChannelContentAt(minute);
+                    if (content == null) {
+                        json.append("null");
+                    } else {
+                        appendEpisode(json, content);
+                    }
+                    json.append('}');
+                    first = false;
+                }
+            }
+            return json.append(']');
+        });
+    }
+
+    /*
+    Retrieves a cached response for the current snapshot, or serializes
+    and caches it. When the snapshot has changed, the cached responses of
+    the old snapshot are dropped. A null key isn't cached. Returns an empty
+    JSON array if there is no snapshot.
+     */
+    private byte[] getResponse(String key, Serializer serializer) {
+        ChannelContainer container = this.snapshot.get();
+        if (container == null) {
+            return "[]".getBytes(StandardCharsets.UTF_8);
+        }
+        if (key == null) {
+            return serialize(serializer, container);
+        }
+        CachedResponses cached = this.cache.get();
+        if (cached == null || cached.container != container) {
+            this.cache.compareAndSet(cached, new CachedResponses(container));
+            cached = this.cache.get();
+        }
+        if (cached.container != container) {
+            // the snapshot changed again while the cache was replaced
+            return serialize(serializer, container);
+        }
+        byte[] response = cached.responses.get(key);
+        if (response == null) {
+            response = serialize(serializer, container);
+            if (response != null
+                    && cached.responses.size() < maxCachedResponses) {
+                cached.responses.putIfAbsent(key, response);
+            }
+        }
+        return response;
+    }
+
+    /*
+    Serializes a response into UTF-8 bytes, or returns null if the
+    serializer found nothing.
+     */
+    private byte[] serialize(Serializer serializer,
+                             ChannelContainer container) {
+        StringBuilder json = serializer.serialize(container);
+        return json == null ? null
+                : json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /*
+    Appends a channel as a JSON object.
+     */
+    private void appendChannel(StringBuilder json, String category,
+                               Channel channel) {
+        json.append("{\"id\":").append(channel.getChannelId()).append(',');
+        Json.appendMember(json, "name", channel.getChannelName(), false);
+        Json.appendMember(json, "category", category, false);
+        Json.appendMember(json, "channelType", channel.getChannelType(),
+                false);
+        Json.appendMember(json, "tagline", channel.getChannelDescription(),
+                false);
+        Json.appendMember(json, "color", channel.getColorCode(), false);
+        Json.appendMember(json, "imageUrl", channel.getImageURLString(),
+                false);
+        Json.appendMember(json, "siteUrl", channel.getSiteURLString(), true);
+        json.append('}');
+    }
+
+    /*
+    Appends an episode as a JSON object.
+     */
+    private void appendEpisode(StringBuilder json, ChannelContent content) {
+        json.append('{');
+        Json.appendMember(json, "episodeId", content.getEpisodeID(), false);
+        Json.appendMember(json, "title", content.getTitle(), false);
+        Json.appendMember(json, "description", content.getDescription(),
+                false);
+        Json.appendMember(json, "startTime",
+                formatTime(content.getStartTime()), false);
+        Json.appendMember(json, "endTime", formatTime(content.getEndTime()),
+                false);
+        Json.appendMember(json, "imageUrl", content.getImageURL(), true);
+        json.append('}');
+    }
+
+    /*
+    Formats epoch seconds as an ISO-8601 instant, or null if unknown.
+     */
+    private static String formatTime(long epochSecond) {
+        if (epochSecond == ChannelContent.unknownTime) {
+            return null;
+        }
+        return Instant.ofEpochSecond(epochSecond).toString();
+    }
+
+    /*
+    Serializes a response from a snapshot.
+     */
+    private interface Serializer {
+        StringBuilder serialize(ChannelContainer container);
+    }
+
+    /*
+    The responses cached for a snapshot.
+     */
+    private static class CachedResponses {
+        private final ChannelContainer container;
+        private final Map<String, byte[]> responses;
+
+        private CachedResponses(ChannelContainer container) {
+            this.container = container;
+            this.responses = new ConcurrentHashMap<>();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package Main.Model.Export;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContainer;
+import Main.Model.Channel.ChannelContent;
+import Main.Model.Channel.ChannelHolder;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+
+/**
+ * <h1>Writes the parsed schedules as JSON Lines or CSV</h1>
+ *
+ * Each episode is written as one record as soon as it's visited, so
+ * nothing but the channels themselves are kept in memory. The times are
+ * written as ISO-8601 instants in UTC, and are empty if they are unknown.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class ScheduleWriter {
+
+    private static final String[] columns = {
+            "category", "channelId", "channelName", "episodeId", "title",
+            "description", "startTime", "endTime", "imageUrl"
+    };
+
+    private final Writer out;
+    private final ExportFormat format;
+
+    /**
+     * Initializes attributes.
+     *
+     * @param out The writer the records are written to. It isn't closed.
+     * @param format The format of the records.
+     */
+    public ScheduleWriter(Writer out, ExportFormat format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * Writes every episode of the channels in the categories, in the
+     * order of the categories.
+     *
+     * @param channelContainer The parsed channels.
+     * @param categories The categories that will be written. Categories
+     *                   without channels are skipped.
+     * @return The number of episodes written.
+     * @throws IOException If the writer failed.
+     */
+    public int write(ChannelContainer channelContainer, String[] categories)
+            throws IOException {
+        if (this.format == ExportFormat.CSV) {
+            writeCsvRecord(columns);
+        }
+        int episodes = 0;
+        for (String category : categories) {
+            ChannelHolder channelHolder = channelContainer
+                    .getSortedChannels().get(category);
+            if (channelHolder == null) {
+                continue;
+            }
+            for (Channel channel : channelHolder.getChannels()) {
+                for (ChannelContent content : channel.getChannelContent()) {
+                    writeEpisode(category, channel, content);
+                    episodes++;
+                }
+            }
+        }
+        this.out.flush();
+        return episodes;
+    }
+
+    /*
+    Writes a single episode in the chosen format.
+     */
+    private void writeEpisode(String category, Channel channel,
+                              ChannelContent content) throws IOException {
+        String[] values = {
+                category,
+                String.valueOf(channel.getChannelId()),
+                channel.getChannelName(),
+                content.getEpisodeID(),
+                content.getTitle(),
+                content.getDescription(),
+                formatTime(content.getStartTime()),
+                formatTime(content.getEndTime()),
+                content.getImageURL()
+        };
+        if (this.format == ExportFormat.CSV) {
+            writeCsvRecord(values);
+        } else {
+            writeJsonRecord(values);
+        }
+    }
+
+    /*
+    Writes a line of comma separated values. Values containing commas,
+    quotes or line breaks are quoted, and quotes are doubled.
+     */
+    private void writeCsvRecord(String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                this.out.write(',');
+            }
+            String value = values[i] == null ? "" : values[i];
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                this.out.write('"');
+                this.out.write(value.replace("\"", "\"\""));
+                this.out.write('"');
+            } else {
+                this.out.write(value);
+            }
+        }
+        this.out.write("\r\n");
+    }
+
+    /*
+    Writes a JSON object on a single line. The channel id is written as a
+    number, and missing values as null.
+     */
+    private void writeJsonRecord(String[] values) throws IOException {
+        StringBuilder json = new StringBuilder(256).append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            Json.appendString(json, columns[i]).append(':');
+            if (columns[i].equals("channelId")) {
+                json.append(values[i]);
+            } else {
+                Json.appendString(json, values[i]);
+            }
+        }
+        this.out.write(json.append("}\n").toString());
+    }
+
+    /*
+    Formats epoch seconds as an ISO-8601 instant, or null if unknown.
+     */
+    private static String formatTime(long epochSecond) {
+        if (epochSecond == ChannelContent.unknownTime) {
+            return null;
+        }
+        return Instant.ofEpochSecond(epochSecond).toString();
+    }
+}
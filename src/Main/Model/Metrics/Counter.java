@@ -0,0 +1,45 @@
+package Main.Model.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Counts events, eg errors or received bytes</h1>
+ *
+ * The count only increases. It can be updated from any thread without
+ * locking.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Adds one to the count.
+     */
+    public void increment() {
+        this.count.increment();
+    }
+
+    /**
+     * Adds to the count.
+     *
+     * @param amount The amount to add, negative amounts are ignored.
+     */
+    public void add(long amount) {
+        if (amount > 0) {
+            this.count.add(amount);
+        }
+    }
+
+    /**
+     * Retrieves the count.
+     *
+     * @return The sum of everything added.
+     */
+    public long get() {
+        return this.count.sum();
+    }
+}
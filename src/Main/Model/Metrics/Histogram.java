@@ -0,0 +1,157 @@
+package Main.Model.Metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Counts observed values, eg latencies, in buckets</h1>
+ *
+ * Each bucket counts the values that are less than or equal to it's upper
+ * bound, in the same way as a Prometheus histogram. Only the buckets are
+ * kept, so percentiles are estimates within a bucket. It can be updated
+ * from any thread without locking.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class Histogram {
+
+    private static final double[] latencyBuckets = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1,
+            2.5, 5, 10, 30
+    };
+
+    private final double[] upperBounds;
+    // the last bucket counts the values above every upper bound
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final DoubleAdder sum;
+
+    /**
+     * Initializes a histogram for latencies in seconds, from 1 ms to 30 s.
+     */
+    public Histogram() {
+        this(latencyBuckets);
+    }
+
+    /**
+     * Initializes a histogram with the given buckets.
+     *
+     * @param upperBounds The upper bounds of the buckets, in increasing
+     *                    order.
+     */
+    public Histogram(double[] upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException(
+                        "The upper bounds must be increasing");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.buckets = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+        this.count = new LongAdder();
+        this.sum = new DoubleAdder();
+    }
+
+    /**
+     * Observes a value.
+     *
+     * @param value The value, eg a latency in seconds.
+     */
+    public void observe(double value) {
+        int bucket = 0;
+        while (bucket < this.upperBounds.length
+                && value > this.upperBounds[bucket]) {
+            bucket++;
+        }
+        this.buckets[bucket].increment();
+        this.count.increment();
+        this.sum.add(value);
+    }
+
+    /**
+     * Observes a duration, eg the difference between two System.nanoTime.
+     *
+     * @param nanos The duration in nanoseconds, observed in seconds.
+     */
+    public void observeNanos(long nanos) {
+        observe(nanos / 1e9);
+    }
+
+    /**
+     * Retrieves the number of observed values.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Retrieves the sum of the observed values.
+     *
+     * @return The sum.
+     */
+    public double getSum() {
+        return this.sum.sum();
+    }
+
+    /**
+     * Retrieves the upper bounds of the buckets.
+     *
+     * @return A copy of the upper bounds, without the infinite bucket.
+     */
+    public double[] getUpperBounds() {
+        return this.upperBounds.clone();
+    }
+
+    /**
+     * Retrieves the number of values less than or equal to each upper
+     * bound.
+     *
+     * @return The cumulative counts, with one more element than the upper
+     *         bounds for the infinite bucket.
+     */
+    public long[] getCumulativeCounts() {
+        long[] counts = new long[this.buckets.length];
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += this.buckets[i].sum();
+            counts[i] = cumulative;
+        }
+        return counts;
+    }
+
+    /**
+     * Estimates a percentile of the observed values.
+     *
+     * <p>The value is interpolated linearly within the bucket that holds
+     *    the percentile. Values above the last upper bound are estimated
+     *    as the last upper bound.</p>
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The estimate, or NaN if nothing has been observed.
+     */
+    public double getPercentile(double percentile) {
+        long[] counts = getCumulativeCounts();
+        long total = counts[counts.length - 1];
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double rank = Math.max(0, Math.min(100, percentile)) / 100 * total;
+        for (int i = 0; i < this.upperBounds.length; i++) {
+            if (counts[i] >= rank && counts[i] > 0) {
+                long below = i == 0 ? 0 : counts[i - 1];
+                double lower = i == 0 ? 0 : this.upperBounds[i - 1];
+                return lower + (this.upperBounds[i] - lower)
+                        * (rank - below) / (counts[i] - below);
+            }
+        }
+        return this.upperBounds.length == 0 ? Double.NaN
+                : this.upperBounds[this.upperBounds.length - 1];
+    }
+}
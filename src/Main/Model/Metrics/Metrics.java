@@ -0,0 +1,266 @@
+package Main.Model.Metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * <h1>Holds the counters and histograms of the application</h1>
+ *
+ * Metrics are created the first time they are asked for, and are then
+ * shared by everyone asking for the same name and labels. They can be
+ * read through JMX after registerMBean, or as Prometheus text.
+ *
+ * The application records into the default instance, eg the latency and
+ * bytes of every fetch from the API, the time to parse each schedule and
+ * the time to load the table.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class Metrics implements MetricsMXBean {
+
+    private static final Metrics defaultMetrics = new Metrics();
+    private static final String objectName = "Main.Model:type=Metrics";
+
+    private final ConcurrentMap<String, Family> families;
+
+    /**
+     * Initializes an empty registry.
+     */
+    public Metrics() {
+        this.families = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Retrieves the registry used by the application.
+     *
+     * @return The default registry.
+     */
+    public static Metrics getDefault() {
+        return defaultMetrics;
+    }
+
+    /**
+     * Retrieves a counter, and creates it if it doesn't exist.
+     *
+     * @param name The name, eg radio_fetch_errors_total.
+     * @param help A description of what is counted.
+     * @param labels Pairs of label names and values, eg "endpoint", url.
+     * @return The counter.
+     * @throws IllegalArgumentException If the name is used by a histogram,
+     *                                  or the labels aren't pairs.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return getFamily(name, help, "counter")
+                .get(formatLabels(labels), Counter::new);
+    }
+
+    /**
+     * Retrieves a latency histogram in seconds, and creates it if it
+     * doesn't exist.
+     *
+     * @param name The name, eg radio_fetch_seconds.
+     * @param help A description of what is observed.
+     * @param labels Pairs of label names and values, eg "endpoint", url.
+     * @return The histogram.
+     * @throws IllegalArgumentException If the name is used by a counter,
+     *                                  or the labels aren't pairs.
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return getFamily(name, help, "histogram")
+                .get(formatLabels(labels), Histogram::new);
+    }
+
+    /**
+     * Registers the default registry in the platform MBean server, so
+     * that it can be read with eg JConsole. Does nothing if it's already
+     * registered.
+     *
+     * @return True if the registry is registered.
+     */
+    public static boolean registerMBean() {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            if (!ManagementFactory.getPlatformMBeanServer()
+                    .isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(defaultMetrics, name);
+            }
+            return true;
+        } catch (JMException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new TreeMap<>();
+        for (Family family : this.families.values()) {
+            family.metrics.forEach((labels, metric) -> {
+                if (metric instanceof Counter) {
+                    counters.put(family.name + labels,
+                            ((Counter) metric).get());
+                }
+            });
+        }
+        return counters;
+    }
+
+    @Override
+    public Map<String, Long> getHistogramCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        forEachHistogram((key, histogram) ->
+                counts.put(key, histogram.getCount()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getHistogramMeans() {
+        Map<String, Double> means = new TreeMap<>();
+        forEachHistogram((key, histogram) -> means.put(key,
+                histogram.getCount() == 0 ? 0
+                        : histogram.getSum() / histogram.getCount()));
+        return means;
+    }
+
+    @Override
+    public Map<String, Double> getHistogram99thPercentiles() {
+        Map<String, Double> percentiles = new TreeMap<>();
+        forEachHistogram((key, histogram) -> {
+            double percentile = histogram.getPercentile(99);
+            percentiles.put(key, Double.isNaN(percentile) ? 0 : percentile);
+        });
+        return percentiles;
+    }
+
+    /**
+     * Retrieves every metric in the Prometheus text exposition format,
+     * version 0.0.4.
+     *
+     * @return The text, with a HELP and TYPE line before each name.
+     */
+    @Override
+    public String getPrometheusText() {
+        StringBuilder text = new StringBuilder(4096);
+        for (Family family : this.families.values()) {
+            text.append("# HELP ").append(family.name).append(' ')
+                    .append(family.help.replace("\\", "\\\\")
+                            .replace("\n", "\\n")).append('\n');
+            text.append("# TYPE ").append(family.name).append(' ')
+                    .append(family.type).append('\n');
+            family.metrics.forEach((labels, metric) -> {
+                if (metric instanceof Counter) {
+                    text.append(family.name).append(labels).append(' ')
+                            .append(((Counter) metric).get()).append('\n');
+                } else {
+                    appendHistogram(text, family.name, labels,
+                            (Histogram) metric);
+                }
+            });
+        }
+        return text.toString();
+    }
+
+    /*
+    Appends the buckets, sum and count of a histogram.
+     */
+    private void appendHistogram(StringBuilder text, String name,
+                                 String labels, Histogram histogram) {
+        double[] upperBounds = histogram.getUpperBounds();
+        long[] counts = histogram.getCumulativeCounts();
+        String bucketLabels = labels.isEmpty() ? "{"
+                : labels.substring(0, labels.length() - 1) + ",";
+        for (int i = 0; i < counts.length; i++) {
+            text.append(name).append("_bucket").append(bucketLabels)
+                    .append("le=\"")
+                    .append(i < upperBounds.length
+                            ? String.valueOf(upperBounds[i]) : "+Inf")
+                    .append("\"} ").append(counts[i]).append('\n');
+        }
+        text.append(name).append("_sum").append(labels).append(' ')
+                .append(histogram.getSum()).append('\n');
+        text.append(name).append("_count").append(labels).append(' ')
+                .append(histogram.getCount()).append('\n');
+    }
+
+    /*
+    Calls the action with the key and histogram of every histogram.
+     */
+    private void forEachHistogram(
+            BiConsumer<String, Histogram> action) {
+        for (Family family : this.families.values()) {
+            family.metrics.forEach((labels, metric) -> {
+                if (metric instanceof Histogram) {
+                    action.accept(family.name + labels, (Histogram) metric);
+                }
+            });
+        }
+    }
+
+    /*
+    Retrieves the family of a name, and creates it if it doesn't exist.
+     */
+    private Family getFamily(String name, String help, String type) {
+        Family family = this.families.computeIfAbsent(name,
+                key -> new Family(name, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(name + " is a "
+                    + family.type);
+        }
+        return family;
+    }
+
+    /*
+    Formats label pairs as {name="value",...}, or an empty string if there
+    are no labels. The values are escaped as in the Prometheus format.
+     */
+    private static String formatLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException(
+                    "The labels must be name and value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder formatted = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            formatted.append(i == 0 ? "" : ",").append(labels[i])
+                    .append("=\"").append(value.replace("\\", "\\\\")
+                            .replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return formatted.append('}').toString();
+    }
+
+    /*
+    The metrics with the same name, one for each set of labels.
+     */
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final ConcurrentMap<String, Object> metrics;
+
+        private Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.metrics = new ConcurrentSkipListMap<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T get(String labels, Supplier<T> create) {
+            return (T) this.metrics.computeIfAbsent(labels,
+                    key -> create.get());
+        }
+    }
+}
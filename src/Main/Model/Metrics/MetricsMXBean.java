@@ -0,0 +1,51 @@
+package Main.Model.Metrics;
+
+import java.util.Map;
+
+/**
+ * <h1>Exposes the metrics through JMX</h1>
+ *
+ * Each metric is keyed by it's name and labels in the Prometheus format,
+ * eg radio_fetch_seconds{endpoint="/api/v2/channels"}.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Retrieves the value of every counter.
+     *
+     * @return The counts.
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Retrieves the number of observed values of every histogram.
+     *
+     * @return The counts.
+     */
+    Map<String, Long> getHistogramCounts();
+
+    /**
+     * Retrieves the mean of every histogram.
+     *
+     * @return The means, eg in seconds for latencies.
+     */
+    Map<String, Double> getHistogramMeans();
+
+    /**
+     * Retrieves the estimated 99th percentile of every histogram.
+     *
+     * @return The percentiles, eg in seconds for latencies.
+     */
+    Map<String, Double> getHistogram99thPercentiles();
+
+    /**
+     * Retrieves every metric in the Prometheus text format.
+     *
+     * @return The text.
+     */
+    String getPrometheusText();
+}
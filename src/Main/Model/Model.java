@@ -3,17 +3,28 @@ package Main.Model;
 import Main.Model.Channel.Channel;
 import Main.Model.Channel.ChannelContainer;
 import Main.Model.Channel.ChannelHolder;
+import Main.Model.Events.RefreshEvent;
+import Main.Model.Metrics.Histogram;
+import Main.Model.Metrics.Metrics;
+import Main.Model.Parser.ChannelMetadataCache;
 import Main.Model.Parser.Parser;
 import javax.management.modelmbean.XMLParseException;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * <h1>Handles all of the logic regarding downloading and parsing
  *     from the Sverige radio API</h1>
  *
  * Stores the parsed information in a ChannelContainer, and eventual
- * error message.
+ * error message. The last successfully parsed container is frozen and
+ * published as a snapshot through an AtomicReference, so it can be read
+ * from any thread without locking. Each run builds a new container and
+ * swaps it in when it's complete. Schedules that aren't fetched within
+ * the refresh budget keeps their episodes from the current snapshot.
  *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
@@ -21,15 +32,55 @@ import java.util.Map;
  */
 public class Model {
 
-    private Map<String, ChannelHolder> sortedChannels;
-    private static final int daysBefore = 1;
-    private static final int daysAfter = 1;
+    private static final String[] defaultCategories = {
+            "P1", "P2", "P3", "P4", "SR", "other"
+    };
+
+    private static final Histogram refreshSeconds = Metrics.getDefault()
+            .histogram("radio_refresh_seconds", "Time of a complete run.");
+    private static final Histogram sortChannelsSeconds = Metrics
+            .getDefault().histogram("radio_sort_channels_seconds",
+                    "Time to sort the channels into categories.");
+
+    private final AtomicReference<ChannelContainer> snapshot;
+    private final ChannelMetadataCache metadataCache;
+    private final SnapshotFile snapshotFile;
+    private final int daysBefore;
+    private final int daysAfter;
 
     /**
-     * Initializes sortedChannelsContainer attribute.
+     * Initializes the metadataCache attribute, which keeps the channel
+     * list between each run. No snapshot is used.
      */
     public Model() {
+        this(null);
+    }
 
+    /**
+     * Initializes the metadataCache and snapshotFile attributes.
+     *
+     * @param snapshotFile Stores the channels after each successful run.
+     *                     Null if no snapshot should be stored.
+     */
+    public Model(SnapshotFile snapshotFile) {
+        this(snapshotFile, 1, 1);
+    }
+
+    /**
+     * Initializes the attributes, with the dates that are parsed on each
+     * run.
+     *
+     * @param snapshotFile Stores the channels after each successful run.
+     *                     Null if no snapshot should be stored.
+     * @param daysBefore Days before the current date to be parsed.
+     * @param daysAfter Days after the current date to be parsed.
+     */
+    public Model(SnapshotFile snapshotFile, int daysBefore, int daysAfter) {
+        this.metadataCache = new ChannelMetadataCache();
+        this.snapshotFile = snapshotFile;
+        this.daysBefore = daysBefore;
+        this.daysAfter = daysAfter;
+        this.snapshot = new AtomicReference<>();
     }
 
     /**
@@ -37,27 +88,113 @@ public class Model {
      * Channel container.
      *
      * <p>Downloads information from the Sverige Radio API and parses it.
-     *    Thereafter sorting each channel into it's correct category.
+     *    Thereafter sorting each channel into it's correct category,
+     *    and storing the result in the snapshot file. The result is
+     *    frozen and replaces the current snapshot. If the thread is
+     *    interrupted, the parsing stops and nothing is stored.
      *
      *    The method is synchronized to make sure that only one parsing
      *    instance can run at once.</p>
      * @param categories Channels will be sorted into each category.
      * @return A ChannelContainer object containing the parsed channels.
      */
-    public synchronized ChannelContainer run(String[] categories) {
+    public ChannelContainer run(String[] categories) {
+        return run(categories, null);
+    }
+
+    /**
+     * Runs the parser in the same way as run(categories), but also tells
+     * the listener about each channel as soon as it's done.
+     *
+     * @param categories Channels will be sorted into each category.
+     * @param listener Called with each channel and it's category, from the
+     *                 thread that parsed it. The channels are frozen.
+     *                 Null if no listener is needed.
+     * @return A ChannelContainer object containing the parsed channels.
+     */
+    public synchronized ChannelContainer run(
+            String[] categories, Consumer<ChannelUpdate> listener) {
         ChannelContainer sortedChannelsContainer = new ChannelContainer();
+        RefreshEvent event = new RefreshEvent();
+        event.begin();
+        long start = System.nanoTime();
         try {
-            this.sortedChannels = new HashMap<>();
-            sortChannels(getParser(daysBefore, daysAfter).getChannels(),
-                    categories);
-            sortedChannelsContainer.setSortedChannels(this.sortedChannels);
+            Consumer<Channel> channelListener = listener == null ? null
+                    : channel -> {
+                        channel.freeze();
+                        listener.accept(new ChannelUpdate(
+                                getCategory(channel, categories), channel));
+                    };
+            Parser parser = getParser(daysBefore, daysAfter);
+            parser.setPreviousChannels(getPreviousChannels());
+            sortedChannelsContainer.setSortedChannels(sortChannels(
+                    parser.getChannels(channelListener), categories));
+            sortedChannelsContainer.freeze();
+            this.snapshot.set(sortedChannelsContainer);
+            saveSnapshot(sortedChannelsContainer);
 
         } catch (XMLParseException e) {
             sortedChannelsContainer.setErrorMessage(e.getMessage());
+            sortedChannelsContainer.freeze();
+            Metrics.getDefault().counter("radio_refresh_errors_total",
+                    "Runs that failed and kept the previous snapshot.")
+                    .increment();
+        }
+        refreshSeconds.observeNanos(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.channels = countChannels(sortedChannelsContainer);
+            event.errorMessage = sortedChannelsContainer.getErrorMessage();
+            event.commit();
         }
         return sortedChannelsContainer;
     }
 
+    /**
+     * Loads the channels stored by the last successful run.
+     *
+     * <p>Reading the snapshot doesn't use the network, and can be used to
+     *    show the channels while the first run is in progress. The loaded
+     *    channels becomes the current snapshot, unless a run has already
+     *    completed.</p>
+     *
+     * @return A frozen ChannelContainer, or null if there is no snapshot.
+     */
+    public ChannelContainer loadSnapshot() {
+        if (this.snapshotFile == null) {
+            return null;
+        }
+        ChannelContainer channelContainer = this.snapshotFile.read();
+        if (channelContainer != null) {
+            channelContainer.freeze();
+            if (!this.snapshot.compareAndSet(null, channelContainer)) {
+                return this.snapshot.get();
+            }
+        }
+        return channelContainer;
+    }
+
+    /**
+     * Retrieves the categories the channels are sorted into by default.
+     * Channels that doesn't belong to any other category are in other.
+     *
+     * @return A new array with the categories.
+     */
+    public static String[] getDefaultCategories() {
+        return defaultCategories.clone();
+    }
+
+    /**
+     * Retrieves the channels of the last successful run, or the loaded
+     * snapshot file if no run has completed yet.
+     *
+     * @return A frozen ChannelContainer, or null if there are no channels
+     *         yet.
+     */
+    public ChannelContainer getSnapshot() {
+        return this.snapshot.get();
+    }
+
     /**
      * Sorts the channels into each category.
      *
@@ -72,29 +209,68 @@ public class Model {
      *
      * @param unsortedChannels ChannelHolder holding the channels but unsorted.
      * @param categories Holds the names of the different categories.
+     * @return The channels of each category.
      */
-    private void sortChannels(ChannelHolder unsortedChannels,
-                             String[] categories) {
+    Map<String, ChannelHolder> sortChannels(
+            ChannelHolder unsortedChannels, String[] categories) {
+        long start = System.nanoTime();
+        Map<String, ChannelHolder> sortedChannels = new HashMap<>();
         // loops through all of the channels
         for (Channel channel : unsortedChannels.getChannels()) {
-            // loops through all of the categories
-            boolean foundCategory = false;
-            for (String category : categories) {
-                // checks if the name of a channel should be in a category
-                if (channel.getChannelName().split(" ")[0]
-                        .compareTo(category) == 0) {
-                    /* checks if the dictionary already has channelHolder
-                    initialized */
-                    addChannelToCategory(channel, category);
-                    foundCategory = true;
-                    break;
-                }
+            addChannelToCategory(sortedChannels, channel,
+                    getCategory(channel, categories));
+        }
+        sortChannelsSeconds.observeNanos(System.nanoTime() - start);
+        return sortedChannels;
+    }
+
+    /*
+    Collects the channels of the current snapshot, or returns null if
+    there is no snapshot.
+     */
+    private ChannelHolder getPreviousChannels() {
+        ChannelContainer previous = this.snapshot.get();
+        if (previous == null || previous.getSortedChannels() == null) {
+            return null;
+        }
+        ChannelHolder previousChannels = new ChannelHolder();
+        for (ChannelHolder channelHolder
+                : previous.getSortedChannels().values()) {
+            for (Channel channel : channelHolder.getChannels()) {
+                previousChannels.addChannel(channel);
+            }
+        }
+        return previousChannels;
+    }
+
+    /*
+    Counts the channels in every category.
+     */
+    private int countChannels(ChannelContainer channelContainer) {
+        int channels = 0;
+        if (channelContainer.getSortedChannels() != null) {
+            for (ChannelHolder channelHolder
+                    : channelContainer.getSortedChannels().values()) {
+                channels += channelHolder.getChannels().size();
             }
-            // adds to the other category
-            if (!foundCategory) {
-                addChannelToCategory(channel, "other");
+        }
+        return channels;
+    }
+
+    /*
+    Finds the category of a channel, or the other category if the channel
+    doesn't belong to any of the categories.
+     */
+    private String getCategory(Channel channel, String[] categories) {
+        // loops through all of the categories
+        for (String category : categories) {
+            // checks if the name of a channel should be in a category
+            if (channel.getChannelName().split(" ")[0]
+                    .compareTo(category) == 0) {
+                return category;
             }
         }
+        return "other";
     }
 
     /**
@@ -109,18 +285,32 @@ public class Model {
      */
     protected Parser getParser(int daysBefore, int daysAfter)
             throws XMLParseException {
-        return new Parser(daysBefore, daysAfter);
+        return new Parser(daysBefore, daysAfter, this.metadataCache);
+    }
+
+    /*
+    Stores the channels in the snapshot file. A snapshot that can't be
+    written only means that the next start is slower.
+     */
+    private void saveSnapshot(ChannelContainer channelContainer) {
+        if (this.snapshotFile != null) {
+            try {
+                this.snapshotFile.write(channelContainer);
+            } catch (IOException e) { }
+        }
     }
 
     /*
     Adds a channel to a category, specified by the categoryString parameter.
      */
-    private void addChannelToCategory(Channel channel, String categoryString) {
-        if (!this.sortedChannels.containsKey(categoryString)) {
-            this.sortedChannels.put(categoryString,
+    private void addChannelToCategory(
+            Map<String, ChannelHolder> sortedChannels, Channel channel,
+            String categoryString) {
+        if (!sortedChannels.containsKey(categoryString)) {
+            sortedChannels.put(categoryString,
                     new ChannelHolder());
         }
-        this.sortedChannels.get(categoryString)
+        sortedChannels.get(categoryString)
                 .addChannel(channel);
     }
 }
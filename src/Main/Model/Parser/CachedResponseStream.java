@@ -0,0 +1,66 @@
+package Main.Model.Parser;
+
+import java.io.FilterInputStream;
+import java.io.InputStream;
+
+/**
+ * <h1>A response body that was stored in the HTTP cache</h1>
+ *
+ * Tells the parsers whether the body is the same as the last time the url
+ * was fetched. If it is, the already parsed result can be reused instead
+ * of parsing the body again. A stored body that is used because the API
+ * couldn't be reached is marked as stale.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class CachedResponseStream extends FilterInputStream {
+
+    private final String url;
+    private final boolean notModified;
+    private final boolean stale;
+
+    /**
+     * Initializes the stream.
+     *
+     * @param stream The response body.
+     * @param url The url the body was fetched from.
+     * @param notModified True if the body is unchanged since the last time
+     *                    the url was fetched.
+     */
+    public CachedResponseStream(InputStream stream, String url,
+                                boolean notModified) {
+        this(stream, url, notModified, false);
+    }
+
+    /**
+     * Initializes the stream, which may be stale.
+     *
+     * @param stream The response body.
+     * @param url The url the body was fetched from.
+     * @param notModified True if the body is unchanged since the last time
+     *                    the url was fetched.
+     * @param stale True if the API couldn't be reached, so the stored body
+     *              may be out of date.
+     */
+    public CachedResponseStream(InputStream stream, String url,
+                                boolean notModified, boolean stale) {
+        super(stream);
+        this.url = url;
+        this.notModified = notModified;
+        this.stale = stale;
+    }
+
+    public String getURL() {
+        return url;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+}
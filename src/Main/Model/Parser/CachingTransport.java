@@ -0,0 +1,282 @@
+package Main.Model.Parser;
+
+import Main.Model.Settings;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * <h1>An HttpTransport with an on-disk HTTP cache</h1>
+ *
+ * Stores each response body on disk together with it's ETag,
+ * Last-Modified and Cache-Control headers. A body that is still fresh
+ * according to max-age is used without calling the API, otherwise the
+ * request is revalidated with If-None-Match and If-Modified-Since.
+ *
+ * The returned streams are CachedResponseStreams, which tells the parsers
+ * if the body is unchanged so that they can skip parsing it again. A new
+ * body is written to disk while it's parsed, instead of being kept in
+ * memory first.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class CachingTransport extends HttpTransport {
+
+    private final Path directory;
+
+    /**
+     * Initializes a cache in the directory set in Settings.
+     */
+    public CachingTransport() {
+        this(Settings.getHttpCacheDirectory(),
+                Duration.ofMillis(Settings.getRequestTimeoutMillis()));
+    }
+
+    /**
+     * Initializes a cache in a directory. Entries that hasn't been used
+     * for the time set in Settings are removed.
+     *
+     * @param directory The directory where the responses are stored.
+     * @param requestTimeout How long to wait for a response.
+     */
+    public CachingTransport(Path directory, Duration requestTimeout) {
+        super(requestTimeout);
+        this.directory = directory;
+        removeUnusedEntries(Settings.getHttpCacheMaxUnusedMillis());
+    }
+
+    /**
+     * Opens a stream with the response body from an url, using the cached
+     * body if it's fresh or the API says that it's not modified.
+     *
+     * <p>If the API can't be reached, a cached body is used if there
+     *    is one. That stream is marked as stale.</p>
+     *
+     * @param url The url that will be requested.
+     * @return A CachedResponseStream with the response body.
+     * @throws IOException If the request failed and nothing was cached.
+     */
+    @Override
+    public InputStream getStream(String url) throws IOException {
+        String key = hash(url);
+        Path bodyFile = this.directory.resolve(key + ".body");
+        Path metaFile = this.directory.resolve(key + ".meta");
+        Properties meta = readMeta(metaFile, bodyFile);
+        long now = System.currentTimeMillis();
+
+        if (meta != null && isFresh(meta, now)) {
+            touch(metaFile, now);
+            return cachedStream(bodyFile, url);
+        }
+
+        HttpRequest.Builder request = createRequest(url);
+        if (meta != null) {
+            String etag = meta.getProperty("etag");
+            String lastModified = meta.getProperty("lastModified");
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                request.header("If-Modified-Since", lastModified);
+            }
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = send(request);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            if (meta != null) {
+                return new CachedResponseStream(Files.newInputStream(
+                        bodyFile), url, true, true);
+            }
+            throw e;
+        }
+
+        if (response.statusCode() == 304 && meta != null) {
+            response.body().close();
+            setCacheControl(meta, response, now);
+            writeMeta(metaFile, meta);
+            return cachedStream(bodyFile, url);
+        }
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new HttpStatusException(response.statusCode(), url);
+        }
+
+        InputStream body = decode(response);
+        String cacheControl = response.headers()
+                .firstValue("Cache-Control").orElse("")
+                .toLowerCase(Locale.ROOT);
+        if (!cacheControl.contains("no-store")) {
+            Properties newMeta = createMeta(url, response, now);
+            body = new StoringInputStream(body, bodyFile,
+                    () -> writeMeta(metaFile, newMeta));
+        }
+        return new CachedResponseStream(body, url, false);
+    }
+
+    /*
+    Creates the headers needed for revalidation. They are written when the
+    whole body is stored, failing to store it only means that the next
+    request isn't conditional.
+     */
+    private Properties createMeta(String url,
+                                  HttpResponse<InputStream> response,
+                                  long now) {
+        Properties meta = new Properties();
+        meta.setProperty("url", url);
+        response.headers().firstValue("ETag").ifPresent(
+                etag -> meta.setProperty("etag", etag));
+        response.headers().firstValue("Last-Modified").ifPresent(
+                lastModified -> meta.setProperty("lastModified",
+                        lastModified));
+        setCacheControl(meta, response, now);
+        return meta;
+    }
+
+    /*
+    Stores when the response was received and for how long it is fresh.
+     */
+    private void setCacheControl(Properties meta,
+                                 HttpResponse<InputStream> response,
+                                 long now) {
+        String cacheControl = response.headers()
+                .firstValue("Cache-Control").orElse("")
+                .toLowerCase(Locale.ROOT);
+        long maxAge = 0;
+        if (!cacheControl.contains("no-cache")) {
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim();
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        maxAge = Long.parseLong(directive.substring(8));
+                    } catch (NumberFormatException e) { }
+                }
+            }
+        }
+        meta.setProperty("storedAt", String.valueOf(now));
+        meta.setProperty("maxAge", String.valueOf(maxAge));
+    }
+
+    /*
+    Checks if a stored response can be used without revalidating it.
+     */
+    private boolean isFresh(Properties meta, long now) {
+        try {
+            long storedAt = Long.parseLong(meta.getProperty("storedAt", "0"));
+            long maxAge = Long.parseLong(meta.getProperty("maxAge", "0"));
+            return now < storedAt + maxAge * 1000;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /*
+    Opens the stored body of an url.
+     */
+    private InputStream cachedStream(Path bodyFile, String url)
+            throws IOException {
+        return new CachedResponseStream(Files.newInputStream(bodyFile),
+                url, true);
+    }
+
+    /*
+    Reads the stored headers, or returns null if the url isn't cached.
+     */
+    private Properties readMeta(Path metaFile, Path bodyFile) {
+        if (!Files.exists(metaFile) || !Files.exists(bodyFile)) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (Reader reader = Files.newBufferedReader(metaFile,
+                StandardCharsets.UTF_8)) {
+            meta.load(reader);
+        } catch (IOException e) {
+            return null;
+        }
+        return meta;
+    }
+
+    /*
+    Writes the stored headers, replacing the old ones.
+     */
+    private void writeMeta(Path metaFile, Properties meta) {
+        try {
+            Files.createDirectories(this.directory);
+            Path temp = Files.createTempFile(this.directory, "meta", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp,
+                    StandardCharsets.UTF_8)) {
+                meta.store(writer, null);
+            }
+            Files.move(temp, metaFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) { }
+    }
+
+    /*
+    Marks an entry as used, so that it isn't removed as unused.
+     */
+    private void touch(Path metaFile, long now) {
+        try {
+            Files.setLastModifiedTime(metaFile, FileTime.fromMillis(now));
+        } catch (IOException e) { }
+    }
+
+    /*
+    Removes entries that hasn't been used for maxUnusedMillis, eg the
+    schedules of old dates.
+     */
+    private void removeUnusedEntries(long maxUnusedMillis) {
+        if (!Files.isDirectory(this.directory)) {
+            return;
+        }
+        long oldest = System.currentTimeMillis() - maxUnusedMillis;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(
+                this.directory, "*.meta")) {
+            for (Path metaFile : files) {
+                if (Files.getLastModifiedTime(metaFile).toMillis() < oldest) {
+                    String name = metaFile.getFileName().toString();
+                    Files.deleteIfExists(this.directory.resolve(
+                            name.replace(".meta", ".body")));
+                    Files.deleteIfExists(metaFile);
+                }
+            }
+        } catch (IOException e) { }
+    }
+
+    /*
+    Creates the file name of an url.
+     */
+    private static String hash(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
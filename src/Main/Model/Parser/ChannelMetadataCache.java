@@ -0,0 +1,80 @@
+package Main.Model.Parser;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Settings;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h1>Caches the channel information from the SverigesRadio API</h1>
+ *
+ * The channel list (name, id, image, schedule url etc) rarely changes, so
+ * it is kept for a long time instead of being downloaded on every refresh.
+ * The cached channels are used as templates and must not be modified.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class ChannelMetadataCache {
+
+    private final Map<String, ArrayList<Channel>> channels;
+    private final Map<String, Long> fetchTimes;
+    private final long timeToLiveMillis;
+
+    /**
+     * Initializes a cache that keeps the channels for the time set
+     * in Settings.
+     */
+    public ChannelMetadataCache() {
+        this(Settings.getMetadataTimeToLiveMillis());
+    }
+
+    /**
+     * Initializes a cache that keeps the channels for timeToLiveMillis.
+     *
+     * @param timeToLiveMillis How long the channels are kept, in
+     *                         milliseconds.
+     */
+    public ChannelMetadataCache(long timeToLiveMillis) {
+        this.channels = new HashMap<>();
+        this.fetchTimes = new HashMap<>();
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * Retrieves the cached channels for an url.
+     *
+     * @param url The url the channels were downloaded from.
+     * @return The channels, or null if there are none or they are too old.
+     */
+    public synchronized ArrayList<Channel> get(String url) {
+        Long fetchTime = this.fetchTimes.get(url);
+        if (fetchTime == null
+                || System.currentTimeMillis() - fetchTime
+                > this.timeToLiveMillis) {
+            return null;
+        }
+        return this.channels.get(url);
+    }
+
+    /**
+     * Stores the channels downloaded from an url.
+     *
+     * @param url The url the channels were downloaded from.
+     * @param channels The parsed channels.
+     */
+    public synchronized void put(String url, ArrayList<Channel> channels) {
+        this.channels.put(url, channels);
+        this.fetchTimes.put(url, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes all cached channels.
+     */
+    public synchronized void clear() {
+        this.channels.clear();
+        this.fetchTimes.clear();
+    }
+}
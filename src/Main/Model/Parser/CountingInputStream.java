@@ -0,0 +1,111 @@
+package Main.Model.Parser;
+
+import Main.Model.Metrics.Counter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * <h1>Counts the bytes read from a stream</h1>
+ *
+ * Can also tell a listener how many bytes were read when the stream
+ * ends, which is either at the end of the stream or when it's closed.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final Counter bytes;
+    private final LongConsumer endListener;
+    private long count;
+    private boolean ended;
+
+    /**
+     * Initializes the stream.
+     *
+     * @param stream The stream that is read.
+     * @param bytes Has every byte that is read or skipped added to it.
+     */
+    public CountingInputStream(InputStream stream, Counter bytes) {
+        this(stream, bytes, null);
+    }
+
+    /**
+     * Initializes the stream with a listener for when it ends.
+     *
+     * @param stream The stream that is read.
+     * @param bytes Has every byte that is read or skipped added to it.
+     * @param endListener Called once with the number of bytes read from
+     *                    this stream, when the end is reached or the
+     *                    stream is closed. Null if no listener is needed.
+     */
+    public CountingInputStream(InputStream stream, Counter bytes,
+                               LongConsumer endListener) {
+        super(stream);
+        this.bytes = bytes;
+        this.endListener = endListener;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        } else {
+            end();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length)
+            throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read >= 0) {
+            count(read);
+        } else {
+            end();
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            end();
+        }
+    }
+
+    /*
+    Adds bytes that were read or skipped.
+     */
+    private void count(long amount) {
+        this.count += amount;
+        this.bytes.add(amount);
+    }
+
+    /*
+    Tells the listener that the stream has ended, the first time it's
+    called.
+     */
+    private void end() {
+        if (!this.ended) {
+            this.ended = true;
+            if (this.endListener != null) {
+                this.endListener.accept(this.count);
+            }
+        }
+    }
+}
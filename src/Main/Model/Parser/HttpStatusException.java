@@ -0,0 +1,32 @@
+package Main.Model.Parser;
+
+import java.io.IOException;
+
+/**
+ * <h1>Thrown when the API responds with an unexpected status</h1>
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    /**
+     * Initializes the exception.
+     *
+     * @param statusCode The status of the response.
+     * @param url The url that was requested.
+     */
+    public HttpStatusException(int statusCode, String url) {
+        super("Unexpected response status " + statusCode + " from " + url);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
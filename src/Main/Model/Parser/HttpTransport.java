@@ -0,0 +1,147 @@
+package Main.Model.Parser;
+
+import Main.Model.Settings;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <h1>Opens streams from urls with a shared HttpClient</h1>
+ *
+ * Every request goes through the same client, so connections are kept
+ * alive and reused between requests, and HTTP/2 multiplexing is used when
+ * the server supports it. Responses are requested gzip compressed.
+ * Connecting, waiting for the headers and each read of the body has a
+ * timeout, so a stalled response can't block forever.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class HttpTransport implements Transport {
+
+    private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofMillis(
+                    Settings.getConnectTimeoutMillis()))
+            .build();
+
+    private final Duration requestTimeout;
+    private final Duration readTimeout;
+
+    /**
+     * Initializes a transport with the request and read timeouts set in
+     * Settings.
+     */
+    public HttpTransport() {
+        this(Duration.ofMillis(Settings.getRequestTimeoutMillis()));
+    }
+
+    /**
+     * Initializes a transport with a request timeout, and the read timeout
+     * set in Settings.
+     *
+     * @param requestTimeout How long to wait for the headers of a response.
+     */
+    public HttpTransport(Duration requestTimeout) {
+        this(requestTimeout,
+                Duration.ofMillis(Settings.getReadTimeoutMillis()));
+    }
+
+    /**
+     * Initializes a transport with a request and a read timeout.
+     *
+     * @param requestTimeout How long to wait for the headers of a response.
+     * @param readTimeout How long a read of the body may wait for data.
+     */
+    public HttpTransport(Duration requestTimeout, Duration readTimeout) {
+        this.requestTimeout = requestTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Opens a stream with the response body from an url.
+     *
+     * @param url The url that will be requested.
+     * @return An InputStream with the decompressed response body.
+     * @throws IOException If the request failed, timed out or the response
+     *                     status wasn't 200.
+     */
+    @Override
+    public InputStream getStream(String url) throws IOException {
+        HttpResponse<InputStream> response = send(createRequest(url));
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new HttpStatusException(response.statusCode(), url);
+        }
+        return decode(response);
+    }
+
+    /**
+     * Creates a GET request for an url, asking for a gzip compressed
+     * response.
+     *
+     * @param url The url that will be requested.
+     * @return A request builder, which can have more headers added.
+     * @throws IOException If the url is malformed.
+     */
+    protected HttpRequest.Builder createRequest(String url)
+            throws IOException {
+        try {
+            return HttpRequest.newBuilder(URI.create(url))
+                    .timeout(this.requestTimeout)
+                    .header("Accept-Encoding", "gzip")
+                    .GET();
+        } catch (IllegalArgumentException e) {
+            throw new MalformedURLException("Malformed url: " + url);
+        }
+    }
+
+    /**
+     * Sends a request with the shared client.
+     *
+     * @param request The request to be sent.
+     * @return The response, with the body not yet read.
+     * @throws IOException If the request failed or was interrupted.
+     */
+    protected HttpResponse<InputStream> send(HttpRequest.Builder request)
+            throws IOException {
+        try {
+            return client.send(request.build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The request was interrupted");
+        } catch (IllegalArgumentException e) {
+            throw new MalformedURLException(e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the read timeout to the response body, and decompresses it if
+     * the server used gzip.
+     *
+     * @param response The response.
+     * @return The decompressed body.
+     * @throws IOException If the body couldn't be decompressed.
+     */
+    protected InputStream decode(HttpResponse<InputStream> response)
+            throws IOException {
+        InputStream body = new ReadTimeoutInputStream(response.body(),
+                this.readTimeout.toMillis());
+        String encoding = response.headers()
+                .firstValue("Content-Encoding").orElse("");
+        if (encoding.equalsIgnoreCase("gzip")) {
+            return new GZIPInputStream(body);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,200 @@
+package Main.Model.Parser;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContent;
+import javax.management.modelmbean.XMLParseException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * <h1>Parses JSON from the SverigesRadio API</h1>
+ *
+ * Used when the API is called with format=json. The channels and
+ * episodes are read from the stream one token at a time and stored
+ * directly in Channel and ChannelContent objects.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class JsonParser extends ParseTools {
+
+    public JsonParser() { }
+
+    /**
+     * Parses each channel in the channel list from the stream.
+     *
+     * @param stream The stream to be parsed.
+     * @return The channels in the same order as in the JSON.
+     * @throws XMLParseException If the stream couldn't be parsed.
+     */
+    public ArrayList<Channel> parseChannels(InputStream stream)
+            throws XMLParseException {
+        ArrayList<Channel> channels = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(stream)) {
+            if (moveToArray(reader, "channels")) {
+                while (moveToNextObject(reader)) {
+                    channels.add(readChannel(reader));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new XMLParseException("There was en exception reading the" +
+                    " channel JSON from stream");
+        }
+        return channels;
+    }
+
+    /**
+     * Parses each episode in a schedule from the stream.
+     *
+     * @param stream The stream to be parsed.
+     * @return The episodes in the same order as in the JSON.
+     * @throws XMLParseException If the stream couldn't be parsed.
+     */
+    public ArrayList<ChannelContent> parseChannelContent(InputStream stream)
+            throws XMLParseException {
+        ArrayList<ChannelContent> channelContent = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(stream)) {
+            if (moveToArray(reader, "schedule")) {
+                while (moveToNextObject(reader)) {
+                    channelContent.add(readChannelContent(reader));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new XMLParseException("There was en exception reading the" +
+                    " schedule JSON from stream");
+        }
+        return channelContent;
+    }
+
+    /*
+    Moves the reader into the array with the name arrayName in the top
+    object. Returns false if there is no such array.
+     */
+    private boolean moveToArray(JsonReader reader, String arrayName)
+            throws IOException {
+        if (reader.next() != JsonReader.Token.BEGIN_OBJECT) {
+            throw new IOException("Expected a JSON object");
+        }
+        JsonReader.Token token;
+        while ((token = reader.next()) == JsonReader.Token.NAME) {
+            String name = reader.getText();
+            JsonReader.Token value = reader.next();
+            if (name.equals(arrayName)
+                    && value == JsonReader.Token.BEGIN_ARRAY) {
+                return true;
+            }
+            reader.skipValue(value);
+        }
+        checkEndObject(token);
+        return false;
+    }
+
+    /*
+    Moves the reader into the next object in an array, and skips anything
+    in the array that isn't an object. Returns false at the end of the
+    array.
+     */
+    private boolean moveToNextObject(JsonReader reader) throws IOException {
+        JsonReader.Token token;
+        while ((token = reader.next()) != JsonReader.Token.BEGIN_OBJECT) {
+            if (token == JsonReader.Token.END_ARRAY) {
+                return false;
+            }
+            if (token == JsonReader.Token.END_DOCUMENT) {
+                throw new IOException("Unexpected end of JSON");
+            }
+            reader.skipValue(token);
+        }
+        return true;
+    }
+
+    /*
+    Reads the attributes of a channel. The reader is placed right after
+    the start of the channel object.
+     */
+    private Channel readChannel(JsonReader reader) throws IOException {
+        Channel channel = new Channel();
+        JsonReader.Token token;
+        while ((token = reader.next()) == JsonReader.Token.NAME) {
+            String name = reader.getText();
+            JsonReader.Token value = reader.next();
+            if (value != JsonReader.Token.VALUE) {
+                reader.skipValue(value);
+                continue;
+            }
+            String text = reader.getText();
+            switch (name) {
+                case "id": channel.setChannelId(Integer.parseInt(text)); break;
+                case "name": channel.setChannelName(text); break;
+                case "image": channel.setImageURLString(text); break;
+                case "color": channel.setColorCode(text); break;
+                case "tagline": channel.setChannelDescription(text); break;
+                case "siteurl": channel.setSiteURLString(text); break;
+                case "scheduleurl": channel.setScheduleURL(text); break;
+                case "channeltype": channel.setChannelType(text); break;
+                default: break;
+            }
+        }
+        checkEndObject(token);
+        return channel;
+    }
+
+    /*
+    Reads the attributes of an episode. The reader is placed right after
+    the start of the episode object.
+     */
+    private ChannelContent readChannelContent(JsonReader reader)
+            throws IOException {
+        ChannelContent content = new ChannelContent();
+        JsonReader.Token token;
+        while ((token = reader.next()) == JsonReader.Token.NAME) {
+            String name = reader.getText();
+            JsonReader.Token value = reader.next();
+            if (value != JsonReader.Token.VALUE) {
+                reader.skipValue(value);
+                continue;
+            }
+            String text = reader.getText();
+            switch (name) {
+                case "episodeid": content.setEpisodeID(text); break;
+                case "title": content.setTitle(text); break;
+                case "description": content.setDescription(text); break;
+                case "starttimeutc":
+                    content.setStartTime(parseJsonTime(text));
+                    break;
+                case "endtimeutc":
+                    content.setEndTime(parseJsonTime(text));
+                    break;
+                case "imageurl": content.setImageURL(text); break;
+                default: break;
+            }
+        }
+        checkEndObject(token);
+        return content;
+    }
+
+    /*
+    Parses a JSON date time, eg /Date(1640473200000)/, into epoch seconds.
+    Date times in the same format as the XML are also accepted.
+     */
+    private long parseJsonTime(String timeString) {
+        int start = timeString.indexOf('(');
+        int end = timeString.indexOf(')');
+        if (start < 0 || end < start) {
+            return parseTime(timeString);
+        }
+        long epochMilli = Long.parseLong(timeString.substring(start + 1, end));
+        return Math.floorDiv(epochMilli, 1000);
+    }
+
+    /*
+    Makes sure that an object ended correctly.
+     */
+    private void checkEndObject(JsonReader.Token token) throws IOException {
+        if (token != JsonReader.Token.END_OBJECT) {
+            throw new IOException("Malformed JSON object");
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package Main.Model.Parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h1>Reads JSON from a stream one token at a time</h1>
+ *
+ * Only the current token is kept in memory, so a document can be read
+ * without first loading all of it. Commas and colons are consumed by the
+ * reader, and a string followed by a colon is returned as a NAME token.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class JsonReader implements Closeable {
+
+    /**
+     * The tokens that can be read. VALUE is a string, number or boolean.
+     */
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        NAME,
+        VALUE,
+        NULL,
+        END_DOCUMENT
+    }
+
+    private final Reader reader;
+    private final char[] buffer;
+    private final StringBuilder text;
+    private int position;
+    private int limit;
+
+    /**
+     * Initializes a reader for an UTF-8 encoded stream.
+     *
+     * @param stream The stream containing the JSON.
+     */
+    public JsonReader(InputStream stream) {
+        this.reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+        this.buffer = new char[8192];
+        this.text = new StringBuilder();
+        this.position = 0;
+        this.limit = 0;
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return The token. The text of NAME and VALUE tokens is retrieved
+     *         with getText.
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    public Token next() throws IOException {
+        int c = nextSignificant();
+        switch (c) {
+            case -1:
+                return Token.END_DOCUMENT;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                readString();
+                if (peekSignificant() == ':') {
+                    this.position++;
+                    return Token.NAME;
+                }
+                return Token.VALUE;
+            default:
+                readLiteral((char) c);
+                if (this.text.toString().equals("null")) {
+                    return Token.NULL;
+                }
+                return Token.VALUE;
+        }
+    }
+
+    /**
+     * Retrieves the text of the last NAME or VALUE token.
+     *
+     * @return The text, with escapes resolved.
+     */
+    public String getText() {
+        return this.text.toString();
+    }
+
+    /**
+     * Skips a value, including all of it's content if it's an object or
+     * an array.
+     *
+     * @param token The first token of the value, eg BEGIN_OBJECT.
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    public void skipValue(Token token) throws IOException {
+        int depth = 0;
+        while (true) {
+            if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+                depth++;
+            } else if (token == Token.END_OBJECT
+                    || token == Token.END_ARRAY) {
+                depth--;
+            } else if (token == Token.END_DOCUMENT) {
+                throw new IOException("Unexpected end of JSON");
+            }
+            if (depth <= 0) {
+                return;
+            }
+            token = next();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    /*
+    Reads the next character that isn't whitespace, a comma or a colon.
+    Returns -1 at the end of the stream.
+     */
+    private int nextSignificant() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (!Character.isWhitespace(c) && c != ',' && c != ':') {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /*
+    Returns the next character that isn't whitespace, without consuming it.
+     */
+    private int peekSignificant() throws IOException {
+        while (fill()) {
+            char c = this.buffer[this.position];
+            if (!Character.isWhitespace(c)) {
+                return c;
+            }
+            this.position++;
+        }
+        return -1;
+    }
+
+    /*
+    Reads a string into the text attribute. The opening quote is
+    already consumed.
+     */
+    private void readString() throws IOException {
+        this.text.setLength(0);
+        int c;
+        while ((c = read()) != '"') {
+            if (c == -1) {
+                throw new IOException("Unterminated JSON string");
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'b': this.text.append('\b'); break;
+                    case 'f': this.text.append('\f'); break;
+                    case 'n': this.text.append('\n'); break;
+                    case 'r': this.text.append('\r'); break;
+                    case 't': this.text.append('\t'); break;
+                    case 'u': this.text.append(readUnicode()); break;
+                    case -1:
+                        throw new IOException("Unterminated JSON string");
+                    default: this.text.append((char) c); break;
+                }
+            } else {
+                this.text.append((char) c);
+            }
+        }
+    }
+
+    /*
+    Reads the four hex digits of an unicode escape.
+     */
+    private char readUnicode() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) {
+                throw new IOException("Malformed JSON unicode escape");
+            }
+            value = value * 16 + digit;
+        }
+        return (char) value;
+    }
+
+    /*
+    Reads a number, true, false or null into the text attribute.
+     */
+    private void readLiteral(char first) throws IOException {
+        this.text.setLength(0);
+        this.text.append(first);
+        while (fill()) {
+            char c = this.buffer[this.position];
+            if (Character.isWhitespace(c) || c == ',' || c == '}'
+                    || c == ']' || c == ':') {
+                break;
+            }
+            this.text.append(c);
+            this.position++;
+        }
+        char c = this.text.charAt(0);
+        if (c != '-' && !Character.isDigit(c)
+                && !this.text.toString().equals("true")
+                && !this.text.toString().equals("false")
+                && !this.text.toString().equals("null")) {
+            throw new IOException("Malformed JSON value: " + this.text);
+        }
+    }
+
+    /*
+    Reads the next character, or -1 at the end of the stream.
+     */
+    private int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return this.buffer[this.position++];
+    }
+
+    /*
+    Fills the buffer if it's empty. Returns false at the end of the stream.
+     */
+    private boolean fill() throws IOException {
+        if (this.position < this.limit) {
+            return true;
+        }
+        this.limit = this.reader.read(this.buffer, 0, this.buffer.length);
+        this.position = 0;
+        return this.limit > 0;
+    }
+}
@@ -1,10 +1,24 @@
 package Main.Model.Parser;
 
 import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContent;
 import Main.Model.Channel.ChannelHolder;
+import Main.Model.Events.ParseEvent;
+import Main.Model.Metrics.Metrics;
+import Main.Model.Settings;
 import javax.management.modelmbean.XMLParseException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -14,6 +28,16 @@ import org.w3c.dom.NodeList;
  *     and parses it</h1>
  *
  * Stores the data for each channel and episode in a ChannelHolder object.
+ * The channel list is parsed once, and can thereafter be used to parse
+ * the schedules of any date. The schedules of the channels are fetched
+ * concurrently, but at most parallelism channels at the same time. A
+ * request that is sent a second time counts toward the same limit. Each
+ * channel fetches all of it's dates, so that it can be reported as done
+ * as soon as it's complete.
+ *
+ * Every schedule must be fetched within the refresh budget, counted from
+ * when the parsing starts. Schedules that miss the deadline keeps the
+ * episodes of the previous channels, if there are any.
  *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
@@ -22,11 +46,18 @@ import org.w3c.dom.NodeList;
 public class ParseChannel extends ParseTools {
 
     private ChannelHolder channelHolder;
+    // only used by parseAllChannels(ChannelHolder), Parser passes the dates
     private String date;
-    private Document doc;
+    private ArrayList<Channel> channelMetadata;
+    private ParserEngine engine;
+    private int parallelism;
+    private int refreshBudgetMillis;
+    private long deadline;
+    private ChannelHolder previousChannels;
 
     /**
-     * Initializes the date and doc attribute.
+     * Parses the channel list in the stream with the engine set in
+     * Settings, and initializes the date and parallelism attribute.
      *
      * <p>date is the date that will be parsed. Note that the date
      *    must be of the form 2022-01-01</p>
@@ -37,33 +68,173 @@ public class ParseChannel extends ParseTools {
      */
     public ParseChannel(InputStream stream, String date)
             throws XMLParseException {
+        this(stream, date, Settings.getParserEngine());
+    }
+
+    /**
+     * Parses the channel list in the stream with the chosen engine, and
+     * initializes the date and parallelism attribute. The schedules are
+     * parsed with the same engine.
+     *
+     * @param stream Stream that will be parsed.
+     * @param date The date that will be parsed.
+     * @param engine The engine used for parsing the channel list.
+     * @throws XMLParseException If there was an error during the parsing.
+     */
+    public ParseChannel(InputStream stream, String date, ParserEngine engine)
+            throws XMLParseException {
         this.date = date;
-        if ((this.doc = documentBuilder(stream)) == null) {
-            throw new XMLParseException("There was an error building " +
-                    "parser from XML");
+        this.engine = engine;
+        this.parallelism = Settings.getParallelism();
+        this.refreshBudgetMillis = Settings.getRefreshBudgetMillis();
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        if (engine == ParserEngine.STAX) {
+            this.channelMetadata = new StaxParser().parseChannels(stream);
+        } else if (engine == ParserEngine.JSON) {
+            this.channelMetadata = new JsonParser().parseChannels(stream);
+        } else {
+            Document doc;
+            if ((doc = documentBuilder(stream)) == null) {
+                throw new XMLParseException("There was an error building " +
+                        "parser from XML");
+            }
+            this.channelMetadata = parseChannelMetadata(
+                    doc.getDocumentElement());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.document = "channels";
+            event.engine = engine.toString();
+            event.items = this.channelMetadata.size();
+            event.commit();
         }
     }
 
     /**
-     * Takes a ChannelHolder object and fills it with channels.
+     * Initializes the parser with an already parsed channel list. The
+     * schedules are parsed with the engine set in Settings.
+     *
+     * @param channelMetadata The channels, eg from getChannelMetadata.
+     *                        They are used as templates and never modified.
+     * @param date The date that will be parsed.
+     */
+    public ParseChannel(ArrayList<Channel> channelMetadata, String date) {
+        this.date = date;
+        this.engine = Settings.getParserEngine();
+        this.parallelism = Settings.getParallelism();
+        this.refreshBudgetMillis = Settings.getRefreshBudgetMillis();
+        this.channelMetadata = channelMetadata;
+    }
+
+    /**
+     * Takes a ChannelHolder object and fills it with channels and their
+     * episodes for the date given to the constructor.
+     *
+     * <p>Kept for callers that parse a single date, eg the tests. Parser
+     *    parses several dates with parseAllChannels(channelHolder, dates,
+     *    listener) instead.</p>
      *
      * @param channelHolder Will be filled with channels during the parsing.
      */
     public void parseAllChannels(ChannelHolder channelHolder) {
+        parseAllChannels(channelHolder, this.date);
+    }
+
+    /**
+     * Takes a ChannelHolder object and fills it with channels and their
+     * episodes for a date.
+     *
+     * <p>Channels that already exists in the holder gets the episodes
+     *    of the date added to them.</p>
+     *
+     * @param channelHolder Will be filled with channels during the parsing.
+     * @param date The date that will be parsed, eg 2022-01-01.
+     */
+    public void parseAllChannels(ChannelHolder channelHolder, String date) {
+        parseAllChannels(channelHolder, List.of(date), null);
+    }
+
+    /**
+     * Takes a ChannelHolder object and fills it with channels and their
+     * episodes for several dates.
+     *
+     * <p>Channels that already exists in the holder gets the episodes
+     *    of the dates added to them. The channels are added to the holder
+     *    when every channel is done, but the listener is told about each
+     *    channel as soon as all of it's dates are parsed.</p>
+     *
+     * @param channelHolder Will be filled with channels during the parsing.
+     * @param dates The dates that will be parsed, eg 2022-01-01.
+     * @param listener Called with each channel that has any episodes when
+     *                 it's done, from the thread that parsed it. Null if
+     *                 no listener is needed.
+     */
+    public void parseAllChannels(ChannelHolder channelHolder,
+                                 List<String> dates,
+                                 Consumer<Channel> listener) {
         this.channelHolder = channelHolder;
-        Element parent = this.doc.getDocumentElement();
-        parseEachChannel(parent);
+        setMaxRequests(Math.max(1, this.parallelism));
+        this.deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(this.refreshBudgetMillis);
+        parseEachChannel(dates, listener);
+    }
+
+    /**
+     * Retrieves the parsed channel list.
+     *
+     * <p>The channels holds the channel information but no episodes.</p>
+     *
+     * @return The channels in the same order as in the XML.
+     */
+    public ArrayList<Channel> getChannelMetadata() {
+        return this.channelMetadata;
+    }
+
+    /**
+     * Sets the maximum number of schedules that are fetched at the same time.
+     *
+     * @param parallelism The parallelism. 1 or less fetches the schedules
+     *                    one at a time.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets how long the schedules of parseAllChannels may take, counted
+     * from when it's called.
+     *
+     * @param refreshBudgetMillis The budget in milliseconds. 0 or less
+     *                            waits for every schedule.
+     */
+    public void setRefreshBudgetMillis(int refreshBudgetMillis) {
+        this.refreshBudgetMillis = refreshBudgetMillis;
+    }
+
+    /**
+     * Sets the channels of the previous refresh. A schedule that isn't
+     * fetched before the deadline keeps the episodes of the channel with
+     * the same id for that date.
+     *
+     * @param previousChannels The previous channels, which aren't modified.
+     *                         Null if there are none.
+     */
+    public void setPreviousChannels(ChannelHolder previousChannels) {
+        this.previousChannels = previousChannels;
     }
 
     /**
      * Retrieves a ParseChannelContent object for the corresponding url.
      *
      * <p>Takes the schedule url for the channel and adds needed parameters,
-     *    including which date to be parsed.
+     *    including which date to be parsed and the format of the response.
      *
      *    Can be overridden, eg change the useAPI parameter in getStream
      *    to use local files instead.
      *
+     *    The schedule must be fetched before the refresh deadline.
+     *
      *    Note: set the date parameter to null if it shouldn't be used</p>
      *
      * @param url The schedule url for the channel.
@@ -76,61 +247,231 @@ public class ParseChannel extends ParseTools {
         ParseChannelContent parser = null;
         try {
             if (url != null) {
-                String[] parameters = new String[2];
+                String[] parameters = new String[3];
                 parameters[0] = "pagination=false";
+                parameters[1] = this.engine.getFormatParameter();
 
-                if (date != null) { parameters[1] = "date=" + date; }
+                if (date != null) { parameters[2] = "date=" + date; }
 
                 String completeURL = createQueryString(url, parameters);
-                parser = new ParseChannelContent(getStream(
-                        completeURL, true));
+                try (InputStream stream = getStream(completeURL,
+                        getRemainingNanos())) {
+                    parser = new ParseChannelContent(stream, this.engine);
+                }
             }
+        } catch (HttpTimeoutException e) {
+            throw new XMLParseException("The schedule wasn't fetched "
+                    + "before the deadline");
         } catch (IOException e) {
-            throw new XMLParseException("Couldn't open xml from schedule url");
+            throw new XMLParseException("Couldn't open schedule url");
         }
         return parser;
     }
 
     /*
-    Goes through each channel and parses it.
+    Goes through each channel and parses it's episodes for the dates.
      */
-    private void parseEachChannel(Element parent) {
-        // parses channel information
-        NodeList nodes = parent.getElementsByTagName("channel");
-        for (int i = 0; i < nodes.getLength(); i++) {
+    private void parseEachChannel(List<String> dates,
+                                  Consumer<Channel> listener) {
+        ArrayList<Channel> channels = new ArrayList<>();
+        ArrayList<Boolean> channelsAlreadyExists = new ArrayList<>();
+        for (Channel metadata : this.channelMetadata) {
             // checks if channel already exists in channelHolder
             boolean channelAlreadyExists = true;
-            String name = ((Element) nodes.item(i)).getAttribute("name");
-            Channel channel = this.channelHolder.getChannelByName(name);
+            Channel channel = this.channelHolder.getChannelById(
+                    metadata.getChannelId());
 
             if (channel == null) {
-                channel = new Channel();
+                channel = new Channel(metadata);
                 channelAlreadyExists = false;
             }
-            setChannelAttributes(nodes, i, channel);
+            channels.add(channel);
+            channelsAlreadyExists.add(channelAlreadyExists);
+        }
+
+        // gets the channel contents
+        parseAllChannelContent(channels, dates, listener);
 
-            // gets the channel contents
-            try {
-                ParseChannelContent contentParser = getContentParser(
-                                    channel.getScheduleURL(), this.date);
-                if (contentParser != null) {
-                    contentParser.parseChannelContent(channel);
+        /*
+        only adds the channel if it has any content,
+        and the channel doesn't already exists in the holder.
+        The channels are added in the same order as in the XML.
+         */
+        for (int i = 0; i < channels.size(); i++) {
+            Channel channel = channels.get(i);
+            if (!channel.getChannelContent().isEmpty()) {
+                if (!channelsAlreadyExists.get(i)) {
+                    channelHolder.addChannel(channel);
                 }
             }
-            // Sets the error message attribute in Channel object
-            catch (XMLParseException e) {
-                channel.setChannelContentErrorMessage(e.getMessage());
+        }
+    }
+
+    /*
+    Fetches and parses the schedules of every channel. Runs at most
+    parallelism channels at the same time, and returns when every channel
+    is done.
+     */
+    private void parseAllChannelContent(ArrayList<Channel> channels,
+                                        List<String> dates,
+                                        Consumer<Channel> listener) {
+        int threads = Math.min(this.parallelism, channels.size());
+        if (threads <= 1) {
+            for (Channel channel : channels) {
+                parseChannelContent(channel, dates, listener);
             }
-            /*
-            only adds the channel if it has any content,
-            and the channel doesn't already exists in the holder.
-             */
-            if (!channel.getChannelContent().isEmpty()) {
-                if (!channelAlreadyExists) {
-                    channelHolder.addChannel(channel);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "schedule-fetcher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (Channel channel : channels) {
+                futures.add(executor.submit(() ->
+                        parseChannelContent(channel, dates, listener)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+    Fetches and parses the schedules of a single channel for every date,
+    and tells the listener when it's done. Stops if the thread is
+    interrupted.
+     */
+    private void parseChannelContent(Channel channel, List<String> dates,
+                                     Consumer<Channel> listener) {
+        for (String date : dates) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            parseChannelContent(channel, date);
+        }
+        if (listener != null && !channel.getChannelContent().isEmpty()) {
+            listener.accept(channel);
+        }
+    }
+
+    /*
+    Fetches and parses the schedule of a single channel. Each channel is
+    only parsed by one thread at a time.
+     */
+    private void parseChannelContent(Channel channel, String date) {
+        if (getRemainingNanos() <= 0) {
+            keepPreviousContent(channel, date);
+            return;
+        }
+        Metrics metrics = Metrics.getDefault();
+        long start = System.nanoTime();
+        try {
+            ParseChannelContent contentParser = getContentParser(
+                                channel.getScheduleURL(), date);
+            if (contentParser != null) {
+                contentParser.parseChannelContent(channel);
+                if (contentParser.isStale()) {
+                    channel.setChannelContentErrorMessage("The schedule "
+                            + "couldn't be updated, a stored schedule is "
+                            + "shown");
                 }
             }
         }
+        // Sets the error message attribute in Channel object
+        catch (XMLParseException e) {
+            // a cancelled refresh isn't an error
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (getRemainingNanos() <= 0) {
+                keepPreviousContent(channel, date);
+                return;
+            }
+            channel.setChannelContentErrorMessage(e.getMessage());
+            metrics.counter("radio_channel_errors_total",
+                    "Schedules of a channel that couldn't be fetched or "
+                            + "parsed.", "channel", channel.getChannelName())
+                    .increment();
+        } finally {
+            metrics.histogram("radio_channel_schedule_seconds",
+                    "Time to fetch and parse the schedule of a channel for "
+                            + "a date.", "channel", channel.getChannelName())
+                    .observeNanos(System.nanoTime() - start);
+        }
+    }
+
+    /*
+    Retrieves the time left until the refresh deadline, or Long.MAX_VALUE
+    if there is no budget.
+     */
+    private long getRemainingNanos() {
+        if (this.refreshBudgetMillis <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return this.deadline - System.nanoTime();
+    }
+
+    /*
+    Adds the episodes of the previous channel that starts on the date in
+    the time zone of the API, since the schedule missed the deadline.
+    Without a previous channel the channel gets an error message instead.
+     */
+    private void keepPreviousContent(Channel channel, String date) {
+        Metrics.getDefault().counter("radio_channel_deadline_misses_total",
+                "Schedules of a channel that missed the refresh deadline.",
+                "channel", channel.getChannelName()).increment();
+        Channel previous = this.previousChannels == null ? null
+                : this.previousChannels.getChannelById(
+                        channel.getChannelId());
+        if (previous == null) {
+            channel.setChannelContentErrorMessage("The schedule wasn't "
+                    + "fetched before the deadline");
+            return;
+        }
+        if (date == null) {
+            for (ChannelContent content : previous.getChannelContent()) {
+                channel.addChannelContent(content);
+            }
+            return;
+        }
+        LocalDate day = LocalDate.parse(date);
+        long from = day.atStartOfDay(apiZone).toEpochSecond();
+        long to = day.plusDays(1).atStartOfDay(apiZone).toEpochSecond();
+        for (ChannelContent content
+                : previous.getChannelContentByTimeRange(from, to)) {
+            // episodes that started the day before belongs to that date
+            if (content.getStartTime() >= from) {
+                channel.addChannelContent(content);
+            }
+        }
+    }
+
+    /*
+    Parses the channel information of every channel in the XML.
+     */
+    private ArrayList<Channel> parseChannelMetadata(Element parent) {
+        NodeList nodes = parent.getElementsByTagName("channel");
+        ArrayList<Channel> channels = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Channel channel = new Channel();
+            setChannelAttributes(nodes, i, channel);
+            channels.add(channel);
+        }
+        return channels;
     }
 
     /*
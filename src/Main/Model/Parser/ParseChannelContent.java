@@ -2,20 +2,27 @@ package Main.Model.Parser;
 
 import Main.Model.Channel.Channel;
 import Main.Model.Channel.ChannelContent;
+import Main.Model.Events.ParseEvent;
+import Main.Model.Metrics.Metrics;
+import Main.Model.Settings;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 import javax.management.modelmbean.XMLParseException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * <h1>Downloads data for each episode from the API and stores it</h1>
  *
  * Stores the information for an episode in a ChannelContent object.
+ * The schedule is either parsed with DOM, STAX or as JSON,
+ * see ParserEngine. If the stream comes from the HTTP cache and is
+ * unchanged, the episodes parsed the last time are reused instead.
  *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
@@ -23,20 +30,71 @@ import java.util.TimeZone;
  */
 public class ParseChannelContent extends ParseTools {
 
-    private Document doc;
-    private Channel channel;
+    private static final int maxReusedSchedules = 1024;
+    private static final Map<String, ArrayList<ChannelContent>>
+            parsedSchedules = Collections.synchronizedMap(
+                    new LinkedHashMap<>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<String,
+                                ArrayList<ChannelContent>> eldest) {
+                            return size() > maxReusedSchedules;
+                        }
+                    });
+
+    private ArrayList<ChannelContent> parsedContent;
+    private boolean stale;
 
     /**
-     * Parses the stream and stores the initialized Document object in the
-     * doc attribute.
+     * Parses the stream with the engine set in Settings.
      *
      * @param stream The stream to be parsed
      * @throws XMLParseException If there was an error parsing the stream.
      */
     public ParseChannelContent(InputStream stream) throws XMLParseException {
-        if ((this.doc = documentBuilder(stream)) == null) {
-            throw new XMLParseException("There was an error building " +
-                    "channel content parser from schedule XML");
+        this(stream, Settings.getParserEngine());
+    }
+
+    /**
+     * Parses the stream with the chosen engine.
+     *
+     * <p>DOM builds a Document object from the stream before reading the
+     *    episodes. STAX and JSON reads the episodes directly, without
+     *    keeping the document.
+     *
+     *    If the stream is a CachedResponseStream that isn't modified, the
+     *    episodes from the last time it was parsed are reused.</p>
+     *
+     * @param stream The stream to be parsed
+     * @param engine The engine used for parsing.
+     * @throws XMLParseException If there was an error parsing the stream.
+     */
+    public ParseChannelContent(InputStream stream, ParserEngine engine)
+            throws XMLParseException {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        String cacheKey = null;
+        if (stream instanceof CachedResponseStream) {
+            CachedResponseStream cachedStream = (CachedResponseStream) stream;
+            cacheKey = engine + " " + cachedStream.getURL();
+            this.stale = cachedStream.isStale();
+            if (cachedStream.isNotModified()) {
+                this.parsedContent = parsedSchedules.get(cacheKey);
+            }
+        }
+
+        if (this.parsedContent != null) {
+            closeStream(stream);
+            commitEvent(event, engine, true);
+            return;
+        }
+        long start = System.nanoTime();
+        this.parsedContent = parse(stream, engine);
+        Metrics.getDefault().histogram("radio_schedule_parse_seconds",
+                "Time to parse a schedule.", "engine", engine.toString())
+                .observeNanos(System.nanoTime() - start);
+        commitEvent(event, engine, false);
+        if (cacheKey != null) {
+            parsedSchedules.put(cacheKey, this.parsedContent);
         }
     }
 
@@ -47,26 +105,83 @@ public class ParseChannelContent extends ParseTools {
      * @param channel Will hold the parsed episode data.
      */
     public void parseChannelContent(Channel channel) {
-        this.channel = channel;
-        Element parent = doc.getDocumentElement();
-        parseEachChannelContent(parent);
+        Metrics.getDefault().counter("radio_channel_episodes_total",
+                "Episodes parsed for a channel.", "channel",
+                channel.getChannelName()).add(this.parsedContent.size());
+        for (ChannelContent channelContent : this.parsedContent) {
+            channel.addChannelContent(channelContent);
+        }
+    }
+
+    /**
+     * Checks if the schedule is a stored one, that was used because the
+     * API couldn't be reached.
+     *
+     * @return True if the episodes may be out of date.
+     */
+    public boolean isStale() {
+        return this.stale;
     }
 
     /*
-    Goes through each episode in the channel schedule and adds it to the
-    channel attribute.
+    Parses the episodes from the stream with the chosen engine.
      */
-    private void parseEachChannelContent(Element parent) {
+    private ArrayList<ChannelContent> parse(InputStream stream,
+                                            ParserEngine engine)
+            throws XMLParseException {
+        if (engine == ParserEngine.STAX) {
+            return new StaxParser().parseChannelContent(stream);
+        } else if (engine == ParserEngine.JSON) {
+            return new JsonParser().parseChannelContent(stream);
+        }
+        Document doc;
+        if ((doc = documentBuilder(stream)) == null) {
+            throw new XMLParseException("There was an error building " +
+                    "channel content parser from schedule XML");
+        }
+        return parseEachChannelContent(doc.getDocumentElement());
+    }
+
+    /*
+    Goes through each episode in the channel schedule and returns them.
+     */
+    private ArrayList<ChannelContent> parseEachChannelContent(Element parent) {
         // parses channel information
         NodeList nodes = parent.getElementsByTagName("scheduledepisode");
 
+        ArrayList<ChannelContent> channelContents = new ArrayList<>();
         for (int i = 0; i < nodes.getLength(); i++) {
             ChannelContent channelContent = new ChannelContent();
             setChannelContentAttributes(nodes, i, channelContent);
-            this.channel.addChannelContent(channelContent);
+            channelContents.add(channelContent);
+        }
+        return channelContents;
+    }
+
+    /*
+    Commits a ParseEvent for the schedule, if it's enabled.
+     */
+    private void commitEvent(ParseEvent event, ParserEngine engine,
+                             boolean reused) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.document = "schedule";
+            event.engine = engine.toString();
+            event.items = this.parsedContent.size();
+            event.reused = reused;
+            event.commit();
         }
     }
 
+    /*
+    Closes a stream that doesn't need to be parsed.
+     */
+    private void closeStream(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) { }
+    }
+
     /*
     Finds relevant information from the API and stores it in the
     channelContent parameter.
@@ -79,32 +194,11 @@ public class ParseChannelContent extends ParseTools {
                 i, nodes, "episodeid"));
         channelContent.setDescription(getContentFromNodeList(
                 i, nodes, "description"));
-        channelContent.setStartTimeString(formatTimeString(getContentFromNodeList(
+        channelContent.setStartTime(parseTime(getContentFromNodeList(
                 i, nodes, "starttimeutc")));
-        channelContent.setEndTimeString(formatTimeString(getContentFromNodeList(
+        channelContent.setEndTime(parseTime(getContentFromNodeList(
                 i, nodes, "endtimeutc")));
         channelContent.setImageURL(getContentFromNodeList(
                 i, nodes, "imageurl"));
     }
-
-    /*
-    Formats the received date time from the api, and also makes it CET instead
-    of UTC.
-     */
-    private String formatTimeString(String timeString) {
-        try {
-            SimpleDateFormat inputFormat =
-                    new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-            SimpleDateFormat outputFormat =
-                    new SimpleDateFormat("yyyy-MM-dd '|' HH:mm");
-            /* Makes sure that the timeZone is set to (CET) utc+1.
-            Note that in this case it's GMT+2. Dont know why, but in this
-            case it is needed. */
-            outputFormat.setTimeZone(TimeZone.getTimeZone("GMT+2"));
-            Date date = inputFormat.parse(timeString);
-            return outputFormat.format(date);
-        } catch (ParseException e) {
-            return null;
-        }
-    }
 }
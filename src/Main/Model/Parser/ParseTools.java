@@ -1,5 +1,10 @@
 package Main.Model.Parser;
 
+import Main.Model.Channel.ChannelContent;
+import Main.Model.Events.FetchEvent;
+import Main.Model.Metrics.Histogram;
+import Main.Model.Metrics.Metrics;
+import Main.Model.Settings;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -7,25 +12,62 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import javax.management.modelmbean.XMLParseException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * <h1>Supplies common methods for the parser</h1>
  *
+ * Streams from the API can be opened with a timeout. Such requests are
+ * sent again if they are slower than usual, and the first response wins.
+ * The number of requests that are open at the same time can be limited.
+ *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
  * @since 2022-01-13
  */
 public class ParseTools {
 
-    protected String apiDefault = "https://api.sr.se/api/v2";
+    protected String apiDefault = Settings.getApiUrl();
     protected String apiChannels = "/channels";
 
+    /**
+     * The time zone of the date parameter of the API. A date is a day in
+     * Swedish time, whatever time zone the application runs in.
+     */
+    public static final ZoneId apiZone = ZoneId.of("Europe/Stockholm");
+
+    private static final int minHedgeSamples = 20;
+    private static final int maxFetchThreads = 64;
+    private static final ThreadPoolExecutor fetchExecutor =
+            createFetchExecutor();
+    private static volatile Transport transport = new HttpTransport();
+
+    // limits the open requests of this parser, null if there is no limit
+    private volatile Semaphore requestPermits;
+
     public ParseTools() { }
 
     /**
@@ -38,6 +80,7 @@ public class ParseTools {
     protected Document documentBuilder(InputStream stream)
                                        throws XMLParseException {
         Document doc;
+        long start = System.nanoTime();
         try {
             DocumentBuilderFactory docFactory =
                     DocumentBuilderFactory.newInstance();
@@ -51,6 +94,10 @@ public class ParseTools {
                  | SAXException e){
             throw new XMLParseException("There was en exception loading the" +
                     "XML file from stream");
+        } finally {
+            Metrics.getDefault().histogram("radio_dom_build_seconds",
+                    "Time to build a DOM document from a response.")
+                    .observeNanos(System.nanoTime() - start);
         }
         return doc;
     }
@@ -105,7 +152,8 @@ public class ParseTools {
      * to but ? and & respectively.</p>
      *
      * @param defaultString The default string.
-     * @param parameterArray A string array containing parameters.
+     * @param parameterArray A string array containing parameters. Null
+     *                       parameters are skipped.
      * @return A string with the parameters added to the default string.
      */
     protected String createQueryString(String defaultString,
@@ -114,6 +162,10 @@ public class ParseTools {
         completeString.append(defaultString);
         int i = 0;
         for (String subString : parameterArray) {
+            // skips parameters that aren't used
+            if (subString == null) {
+                continue;
+            }
             // Start parameter
             if (i == 0 && !defaultString.contains("?")) {
                 completeString.append("?");
@@ -127,10 +179,42 @@ public class ParseTools {
         return completeString.toString();
     }
 
+    /**
+     * Sets the transport used for opening streams from the API.
+     *
+     * @param newTransport The transport shared by all parsers.
+     */
+    public static void setTransport(Transport newTransport) {
+        transport = newTransport;
+    }
+
+    /**
+     * Sets the transport chosen in Settings, a CachingTransport unless the
+     * HTTP cache is turned off.
+     *
+     * <p>Called by the applications on start. Until then an HttpTransport
+     *    is used, since creating the cache removes unused entries from
+     *    disk.</p>
+     */
+    public static void setDefaultTransport() {
+        setTransport(Settings.isHttpCacheEnabled()
+                ? new CachingTransport()
+                : new HttpTransport());
+    }
+
+    /**
+     * Retrieves the transport used for opening streams from the API.
+     *
+     * @return The transport shared by all parsers.
+     */
+    public static Transport getTransport() {
+        return transport;
+    }
+
     /**
      * Opens a stream from the url parameter.
      *
-     * <p>The stream is opened using the URL or FileInputStream
+     * <p>The stream is opened using the Transport or FileInputStream
      * depending on the useAPI parameter. This is used for easier testing,
      * which enables the use of local xml files.</p>
      *
@@ -147,11 +231,382 @@ public class ParseTools {
             throws IOException {
         InputStream stream;
         if (useAPI) {
-            stream = new URL(url).openStream();
+            stream = getStreamWithMetrics(url, () -> { });
         } else {
             stream = new FileInputStream(url);
         }
         return stream;
     }
 
+    /**
+     * Opens a stream from the API that must be received within a timeout.
+     *
+     * <p>If the API hasn't sent the response headers after the delay from
+     *    getHedgeDelayNanos, the request is sent a second time and the
+     *    first response is used. The slower request is cancelled. The body
+     *    is streamed, and a read that is still waiting for data at the
+     *    timeout fails with a HttpTimeoutException.
+     *
+     *    Without a timeout or hedging the request is sent from the calling
+     *    thread.</p>
+     *
+     * @param url The url that will be requested.
+     * @param timeoutNanos How long to wait for the response, in
+     *                     nanoseconds. Long.MAX_VALUE waits until the
+     *                     transport gives up.
+     * @return An InputStream with the response body, which is still a
+     *         CachedResponseStream if the transport returned one.
+     * @throws IOException If the requests failed, or a HttpTimeoutException
+     *                     if there was no response within the timeout.
+     */
+    protected InputStream getStream(String url, long timeoutNanos)
+            throws IOException {
+        long start = System.nanoTime();
+        long hedgeDelay = getHedgeDelayNanos(url);
+        if (timeoutNanos == Long.MAX_VALUE && hedgeDelay < 0) {
+            Semaphore permits = this.requestPermits;
+            acquire(permits);
+            Runnable release = releaser(permits);
+            try {
+                return getStreamWithMetrics(url, release);
+            } catch (IOException | RuntimeException e) {
+                release.run();
+                throw e;
+            }
+        }
+        String endpoint = getEndpoint(url);
+        CompletableFuture<InputStream> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        List<Future<?>> attempts = new ArrayList<>();
+        attempts.add(startAttempt(url, endpoint, winner, pending, error,
+                false));
+        try {
+            InputStream stream = null;
+            if (hedgeDelay >= 0 && hedgeDelay < timeoutNanos) {
+                stream = await(winner, hedgeDelay);
+                if (stream == null) {
+                    pending.incrementAndGet();
+                    attempts.add(startAttempt(url, endpoint, winner, pending,
+                            error, true));
+                }
+            }
+            if (stream == null) {
+                stream = await(winner, timeoutNanos == Long.MAX_VALUE
+                        ? Long.MAX_VALUE
+                        : timeoutNanos - (System.nanoTime() - start));
+            }
+            if (stream == null) {
+                Metrics.getDefault().counter(
+                        "radio_fetch_deadline_exceeded_total",
+                        "Requests without a response before the deadline.",
+                        "endpoint", endpoint).increment();
+                winner.completeExceptionally(new HttpTimeoutException(url));
+                throw new HttpTimeoutException("No response before the "
+                        + "deadline from " + url);
+            }
+            if (timeoutNanos == Long.MAX_VALUE) {
+                return stream;
+            }
+            return withDeadline(stream, start + timeoutNanos);
+        } finally {
+            for (Future<?> attempt : attempts) {
+                attempt.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Retrieves how long to wait for the response headers before the
+     * request is sent a second time.
+     *
+     * <p>The delay is the percentile set in Settings of the time until
+     *    the endpoint has sent the headers, the same time that is waited
+     *    for before sending the request again. The request isn't sent
+     *    again until enough latencies have been recorded.</p>
+     *
+     * @param url The url that will be requested.
+     * @return The delay in nanoseconds, or -1 if the request shouldn't be
+     *         sent again.
+     */
+    protected long getHedgeDelayNanos(String url) {
+        int percentile = Settings.getHedgePercentile();
+        if (percentile <= 0) {
+            return -1;
+        }
+        Histogram latency = Metrics.getDefault().histogram(
+                "radio_fetch_seconds", "Time until the API responded.",
+                "endpoint", getEndpoint(url));
+        if (latency.getCount() < minHedgeSamples) {
+            return -1;
+        }
+        return (long) (latency.getPercentile(percentile) * 1e9);
+    }
+
+    /**
+     * Limits how many requests of this parser that can be open at the
+     * same time, from when they are sent until the body is read or
+     * closed. A request that is sent a second time is only sent if there
+     * is room for it.
+     *
+     * @param maxRequests The maximum number of open requests, 0 or less
+     *                    for no limit.
+     */
+    protected void setMaxRequests(int maxRequests) {
+        this.requestPermits = maxRequests > 0
+                ? new Semaphore(maxRequests) : null;
+    }
+
+    /*
+    Sends a request on the fetch executor, and completes winner with the
+    response body once the headers are received, if it's the first
+    response, otherwise the body is closed. Completes winner with the
+    error when every pending request has failed. A second request that
+    has no room among the open requests isn't sent.
+     */
+    private Future<?> startAttempt(String url, String endpoint,
+                                   CompletableFuture<InputStream> winner,
+                                   AtomicInteger pending,
+                                   AtomicReference<Exception> error,
+                                   boolean hedged) {
+        Semaphore permits = this.requestPermits;
+        return fetchExecutor.submit(() -> {
+            if (hedged) {
+                if (permits != null && !permits.tryAcquire()) {
+                    fail(winner, pending, error, null);
+                    return;
+                }
+                Metrics.getDefault().counter("radio_fetch_hedged_total",
+                        "Requests sent a second time because the API "
+                                + "was slow.", "endpoint", endpoint)
+                        .increment();
+            } else {
+                try {
+                    acquire(permits);
+                } catch (InterruptedIOException e) {
+                    fail(winner, pending, error, e);
+                    return;
+                }
+            }
+            Runnable release = releaser(permits);
+            try {
+                InputStream stream = getStreamWithMetrics(url, release);
+                if (!winner.complete(stream)) {
+                    stream.close();
+                } else if (hedged) {
+                    Metrics.getDefault().counter(
+                            "radio_fetch_hedge_wins_total",
+                            "Requests sent a second time that responded "
+                                    + "first.", "endpoint", endpoint)
+                            .increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                release.run();
+                fail(winner, pending, error, e);
+            }
+        });
+    }
+
+    /*
+    Records that a request failed or wasn't sent, and completes winner
+    with the last error when no request is pending.
+     */
+    private static void fail(CompletableFuture<InputStream> winner,
+                             AtomicInteger pending,
+                             AtomicReference<Exception> error, Exception e) {
+        if (e != null) {
+            error.set(e);
+        }
+        if (pending.decrementAndGet() == 0) {
+            winner.completeExceptionally(error.get());
+        }
+    }
+
+    /*
+    Waits for the first response for at most nanos, and returns null if
+    there is none yet.
+     */
+    private static InputStream await(CompletableFuture<InputStream> winner,
+                                     long nanos) throws IOException {
+        try {
+            return winner.get(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The request was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /*
+    Makes the reads of a body fail when the deadline has passed. The
+    stream is still a CachedResponseStream if it was one.
+     */
+    private static InputStream withDeadline(InputStream stream,
+                                            long deadlineNanos) {
+        InputStream deadlineStream = new ReadTimeoutInputStream(stream,
+                Long.MAX_VALUE, deadlineNanos);
+        if (stream instanceof CachedResponseStream) {
+            CachedResponseStream cachedStream = (CachedResponseStream) stream;
+            return new CachedResponseStream(deadlineStream,
+                    cachedStream.getURL(), cachedStream.isNotModified(),
+                    cachedStream.isStale());
+        }
+        return deadlineStream;
+    }
+
+    /*
+    Waits until there is room for another open request.
+     */
+    private static void acquire(Semaphore permits)
+            throws InterruptedIOException {
+        if (permits == null) {
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The request was interrupted");
+        }
+    }
+
+    /*
+    Creates a task that gives back the room of an open request, the first
+    time it's run.
+     */
+    private static Runnable releaser(Semaphore permits) {
+        if (permits == null) {
+            return () -> { };
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+    }
+
+    /*
+    Creates the daemon threads that waits for the response headers of
+    requests with a timeout. Idle threads are stopped.
+     */
+    private static ThreadPoolExecutor createFetchExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxFetchThreads, maxFetchThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "hedged-fetch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /*
+    Opens a stream with the transport, and records the latency, the
+    received bytes and the errors of the endpoint. A FetchEvent is
+    committed when the stream ends. The stream is still a
+    CachedResponseStream if the transport returned one. endListener is run
+    when the stream ends, or if the request fails.
+     */
+    private InputStream getStreamWithMetrics(String url,
+                                             Runnable endListener)
+            throws IOException {
+        String endpoint = getEndpoint(url);
+        Metrics metrics = Metrics.getDefault();
+        FetchEvent event = new FetchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        InputStream stream;
+        try {
+            stream = transport.getStream(url);
+        } catch (IOException e) {
+            // a cancelled request isn't an error
+            if (!Thread.currentThread().isInterrupted()) {
+                metrics.counter("radio_fetch_errors_total",
+                        "Failed requests to the API.", "endpoint", endpoint)
+                        .increment();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.url = url;
+                event.status = e instanceof HttpStatusException
+                        ? ((HttpStatusException) e).getStatusCode() : 0;
+                event.commit();
+            }
+            endListener.run();
+            throw e;
+        } finally {
+            metrics.histogram("radio_fetch_seconds",
+                    "Time until the API responded.", "endpoint", endpoint)
+                    .observeNanos(System.nanoTime() - start);
+        }
+        boolean cached = stream instanceof CachedResponseStream
+                && ((CachedResponseStream) stream).isNotModified();
+        CountingInputStream countingStream = new CountingInputStream(stream,
+                metrics.counter("radio_fetch_bytes_total",
+                        "Bytes received from the API.", "endpoint",
+                        endpoint), bytes -> {
+                    endListener.run();
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.url = url;
+                        event.status = 200;
+                        event.bytes = bytes;
+                        event.cached = cached;
+                        event.commit();
+                    }
+                });
+        if (stream instanceof CachedResponseStream) {
+            CachedResponseStream cachedStream = (CachedResponseStream) stream;
+            if (cachedStream.isStale()) {
+                metrics.counter("radio_fetch_stale_total",
+                        "Stored responses used because the API couldn't "
+                                + "be reached.", "endpoint", endpoint)
+                        .increment();
+            }
+            return new CachedResponseStream(countingStream,
+                    cachedStream.getURL(), cachedStream.isNotModified(),
+                    cachedStream.isStale());
+        }
+        return countingStream;
+    }
+
+    /*
+    Retrieves the path of an url, eg /api/v2/scheduledepisodes, so that
+    the requests of each channel are recorded as the same endpoint.
+     */
+    private static String getEndpoint(String url) {
+        try {
+            String path = URI.create(url).getPath();
+            return path == null || path.isEmpty() ? "/" : path;
+        } catch (IllegalArgumentException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Parses a date time from the api into epoch seconds.
+     *
+     * @param timeString A date time in UTC from the api,
+     *                   eg 2022-01-01T10:00:00Z
+     * @return The epoch seconds, or ChannelContent.unknownTime if it
+     *         couldn't be parsed.
+     */
+    protected long parseTime(String timeString) {
+        if (timeString == null) {
+            return ChannelContent.unknownTime;
+        }
+        try {
+            return Instant.parse(timeString.trim()).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return ChannelContent.unknownTime;
+        }
+    }
 }
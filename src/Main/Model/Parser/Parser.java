@@ -1,15 +1,20 @@
 package Main.Model.Parser;
 
+import Main.Model.Channel.Channel;
 import Main.Model.Channel.ChannelHolder;
+import Main.Model.Settings;
 import javax.management.modelmbean.XMLParseException;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * <h1>Downloads data from the SverigesRadio API and parses it</h1>
  *
  * Stores the data for each channel and episode in a ChannelHolder object.
+ * The channel list is only downloaded once, or taken from a
+ * ChannelMetadataCache, and is then reused for every date.
  *
  * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
  * @version 2.0
@@ -17,42 +22,102 @@ import java.util.ArrayList;
  */
 public class Parser extends ParseTools {
 
-    ArrayList<ParseChannel> channelParsers;
+    ParseChannel channelParser;
+    ArrayList<String> dates;
     ChannelHolder channelHolder;
     String mainChannelsURL;
 
     /**
-     * Initializes attributes and sets as many channel parsers as there
-     * are days in the range from daysBefore to daysAfter the current date.
+     * Initializes attributes and downloads the channel list. The channels
+     * will be parsed for each date in the range from daysBefore to
+     * daysAfter the current date.
      *
      * @param daysBefore Days before the current date to be parsed.
      * @param daysAfter Days after the current date to be parsed.
      * @throws XMLParseException If there was and error during the parsing.
      */
-    public Parser(int daysBefore, int daysAfter) throws XMLParseException{
-        this.channelParsers = new ArrayList<>();
+    public Parser(int daysBefore, int daysAfter) throws XMLParseException {
+        this(daysBefore, daysAfter, new ChannelMetadataCache());
+    }
+
+    /**
+     * Initializes attributes and retrieves the channel list from the cache,
+     * or downloads it if it isn't cached. The channels will be parsed for
+     * each date in the range from daysBefore to daysAfter the current date.
+     *
+     * @param daysBefore Days before the current date to be parsed.
+     * @param daysAfter Days after the current date to be parsed.
+     * @param metadataCache Cache holding previously downloaded channel lists.
+     * @throws XMLParseException If there was and error during the parsing.
+     */
+    public Parser(int daysBefore, int daysAfter,
+                  ChannelMetadataCache metadataCache)
+            throws XMLParseException {
+        this.dates = new ArrayList<>();
         this.channelHolder = new ChannelHolder();
-        String[] parameters = {"pagination=false"};
+        String[] parameters = {"pagination=false",
+                Settings.getParserEngine().getFormatParameter()};
         this.mainChannelsURL = createQueryString(
                 apiDefault + apiChannels, parameters);
-        setChannelParsers(daysBefore,daysAfter);
+        setDates(daysBefore, daysAfter);
+        setChannelParser(metadataCache);
     }
 
     /**
-     * Starts the parsing of all the parsers stored in the
-     * channelParsers attribute. And thereafter returns a ChannelHolder with
+     * Starts the parsing of the channels for every date stored in the
+     * dates attribute. And thereafter returns a ChannelHolder with
      * all the channels gathered,
      *
+     * <p>Stops if the thread is interrupted.</p>
+     *
      * @return All the channels stored in a ChannelHolder object.
-     * @throws XMLParseException If there was an error during the parsing.
+     * @throws XMLParseException If there was an error during the parsing,
+     *                           or the parsing was interrupted.
      */
     public ChannelHolder getChannels() throws XMLParseException {
-        for (ParseChannel parser : this.channelParsers) {
-            parser.parseAllChannels(this.channelHolder);
+        return getChannels(null);
+    }
+
+    /**
+     * Starts the parsing of the channels for every date stored in the
+     * dates attribute, and tells the listener about each channel as soon
+     * as all of it's dates are parsed. Thereafter returns a ChannelHolder
+     * with all the channels gathered.
+     *
+     * <p>Stops if the thread is interrupted.</p>
+     *
+     * @param listener Called with each channel that has any episodes, from
+     *                 the thread that parsed it. Null if no listener is
+     *                 needed.
+     * @return All the channels stored in a ChannelHolder object.
+     * @throws XMLParseException If there was an error during the parsing,
+     *                           or the parsing was interrupted.
+     */
+    public ChannelHolder getChannels(Consumer<Channel> listener)
+            throws XMLParseException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new XMLParseException("The refresh was cancelled");
+        }
+        this.channelParser.parseAllChannels(this.channelHolder, this.dates,
+                listener);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new XMLParseException("The refresh was cancelled");
         }
         return this.channelHolder;
     }
 
+    /**
+     * Sets the channels of the previous refresh. Schedules that aren't
+     * fetched before the refresh deadline keeps the episodes of these
+     * channels.
+     *
+     * @param previousChannels The previous channels, which aren't modified.
+     *                         Null if there are none.
+     */
+    public void setPreviousChannels(ChannelHolder previousChannels) {
+        this.channelParser.setPreviousChannels(previousChannels);
+    }
+
     /**
      * Gets a ParseChannel object. Can be used for overriding the useAPI
      * parameter in the getStream.
@@ -73,24 +138,51 @@ public class Parser extends ParseTools {
         }
     }
 
-    /*
-    Adds parsers to the channelParsers attribute. Each parser gets it's own
-    date. And the dates depends on the daysBefore and daysAfter parameters.
-    Note: before and after the current date.
+    /**
+     * Gets a ParseChannel object from an already parsed channel list.
+     *
+     * <p>Used when the channel list is cached. Can be overridden in the
+     * same way as getParseChannel(url, date).</p>
+     *
+     * @param channelMetadata The cached channels.
+     * @param date The date that the parser will parse.
+     * @return A ParseChannel object.
      */
-    private void setChannelParsers(int daysBefore, int daysAfter)
-            throws XMLParseException {
+    protected ParseChannel getParseChannel(ArrayList<Channel> channelMetadata,
+                                           String date) {
+        return new ParseChannel(channelMetadata, date);
+    }
 
+    /*
+    Adds each date to the dates attribute. And the dates depends on the
+    daysBefore and daysAfter parameters.
+    Note: before and after the current date in the time zone of the API.
+     */
+    private void setDates(int daysBefore, int daysAfter) {
         int dateRange = daysBefore + daysAfter + 1;
         int daysBeforeCounter = daysBefore;
         for (int i = 0; i < dateRange; i++) {
-            LocalDate date = LocalDate.now().minusDays(daysBeforeCounter);
-            String dateString = date.toString();
-
-            this.channelParsers.add(getParseChannel(createQueryString(
-                    this.mainChannelsURL, new String[]{dateString}),
-                    dateString));
+            LocalDate date = LocalDate.now(apiZone)
+                    .minusDays(daysBeforeCounter);
+            this.dates.add(date.toString());
             daysBeforeCounter--;
         }
     }
+
+    /*
+    Sets the channelParser attribute. The channel list is only downloaded
+    if it isn't in the cache.
+     */
+    private void setChannelParser(ChannelMetadataCache metadataCache)
+            throws XMLParseException {
+        ArrayList<Channel> channelMetadata = metadataCache.get(
+                this.mainChannelsURL);
+        if (channelMetadata != null) {
+            this.channelParser = getParseChannel(channelMetadata, null);
+        } else {
+            this.channelParser = getParseChannel(this.mainChannelsURL, null);
+            metadataCache.put(this.mainChannelsURL,
+                    this.channelParser.getChannelMetadata());
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package Main.Model.Parser;
+
+/**
+ * <h1>The engines that can be used for parsing the XML from the API</h1>
+ *
+ * DOM loads the whole document into memory before it is read, while STAX
+ * reads the document in a single forward pass without keeping it.
+ * JSON calls the API with format=json instead, and reads the JSON one
+ * token at a time.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public enum ParserEngine {
+    DOM,
+    STAX,
+    JSON;
+
+    /**
+     * Retrieves the parameter that tells the API which format to respond
+     * with.
+     *
+     * @return format=json for JSON, otherwise format=xml.
+     */
+    public String getFormatParameter() {
+        return this == JSON ? "format=json" : "format=xml";
+    }
+}
@@ -0,0 +1,185 @@
+package Main.Model.Parser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Fails reads that wait too long for data</h1>
+ *
+ * The response body of the HttpClient blocks without any timeout once
+ * the headers are received. Each read from this stream has a watchdog,
+ * which closes the body if the read takes longer than the timeout. Closing
+ * the body wakes up the blocked read, which then fails with a
+ * SocketTimeoutException. The thread itself is never interrupted.
+ *
+ * The stream can also have a deadline, after which every read fails with
+ * a HttpTimeoutException.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class ReadTimeoutInputStream extends FilterInputStream {
+
+    private static final ScheduledThreadPoolExecutor watchdog =
+            createWatchdog();
+
+    private final long timeoutMillis;
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    private final Object lock;
+    private boolean reading;
+    private boolean timedOut;
+
+    /**
+     * Initializes the stream.
+     *
+     * @param stream The stream that is read.
+     * @param timeoutMillis How long a single read may take.
+     */
+    public ReadTimeoutInputStream(InputStream stream, long timeoutMillis) {
+        this(stream, timeoutMillis, 0, false);
+    }
+
+    /**
+     * Initializes the stream with a deadline.
+     *
+     * @param stream The stream that is read.
+     * @param timeoutMillis How long a single read may take.
+     *                      Long.MAX_VALUE if only the deadline is used.
+     * @param deadlineNanos The System.nanoTime() when all reads must be
+     *                      done.
+     */
+    public ReadTimeoutInputStream(InputStream stream, long timeoutMillis,
+                                  long deadlineNanos) {
+        this(stream, timeoutMillis, deadlineNanos, true);
+    }
+
+    /*
+    Initializes the stream, with or without a deadline.
+     */
+    private ReadTimeoutInputStream(InputStream stream, long timeoutMillis,
+                                   long deadlineNanos, boolean hasDeadline) {
+        super(stream);
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = hasDeadline;
+        this.lock = new Object();
+    }
+
+    @Override
+    public int read() throws IOException {
+        ScheduledFuture<?> timer = startTimer();
+        int b;
+        try {
+            b = super.read();
+        } catch (IOException e) {
+            throw stopTimer(timer) ? timeoutException() : e;
+        }
+        stopTimer(timer);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length)
+            throws IOException {
+        ScheduledFuture<?> timer = startTimer();
+        int read;
+        try {
+            read = super.read(buffer, offset, length);
+        } catch (IOException e) {
+            throw stopTimer(timer) ? timeoutException() : e;
+        }
+        stopTimer(timer);
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        ScheduledFuture<?> timer = startTimer();
+        long skipped;
+        try {
+            skipped = super.skip(n);
+        } catch (IOException e) {
+            throw stopTimer(timer) ? timeoutException() : e;
+        }
+        stopTimer(timer);
+        return skipped;
+    }
+
+    /*
+    Starts the watchdog of a read, which fires at the timeout or the
+    deadline, whichever comes first.
+     */
+    private ScheduledFuture<?> startTimer() {
+        synchronized (this.lock) {
+            this.reading = true;
+        }
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis);
+        if (this.hasDeadline) {
+            delayNanos = Math.max(0, Math.min(delayNanos,
+                    this.deadlineNanos - System.nanoTime()));
+        }
+        return watchdog.schedule(this::timeout, delayNanos,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /*
+    Stops the watchdog when a read returns. Returns true if the watchdog
+    has closed the stream.
+     */
+    private boolean stopTimer(ScheduledFuture<?> timer) {
+        timer.cancel(false);
+        synchronized (this.lock) {
+            this.reading = false;
+            return this.timedOut;
+        }
+    }
+
+    /*
+    Closes the stream if a read is still in progress.
+     */
+    private void timeout() {
+        synchronized (this.lock) {
+            if (!this.reading) {
+                return;
+            }
+            this.timedOut = true;
+        }
+        try {
+            this.in.close();
+        } catch (IOException e) { }
+    }
+
+    /*
+    Creates the exception of a read that timed out.
+     */
+    private IOException timeoutException() {
+        if (this.hasDeadline && this.deadlineNanos - System.nanoTime() <= 0) {
+            return new HttpTimeoutException("The response wasn't read "
+                    + "before the deadline");
+        }
+        return new SocketTimeoutException("No data from the API within "
+                + this.timeoutMillis + " ms");
+    }
+
+    /*
+    Creates the single daemon thread that times every read.
+     */
+    private static ScheduledThreadPoolExecutor createWatchdog() {
+        ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(1, runnable -> {
+                    Thread thread = new Thread(runnable, "read-timeout");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,236 @@
+package Main.Model.Parser;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContent;
+import javax.management.modelmbean.XMLParseException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * <h1>Parses XML from the SverigesRadio API with STAX</h1>
+ *
+ * Reads the channel and scheduledepisode elements in a single forward
+ * pass, and stores them directly in Channel and ChannelContent objects.
+ * No document is kept in memory.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class StaxParser extends ParseTools {
+
+    private static final XMLInputFactory factory = createFactory();
+
+    public StaxParser() { }
+
+    /**
+     * Parses each channel in the channel list from the stream.
+     *
+     * @param stream The stream to be parsed.
+     * @return The channels in the same order as in the XML.
+     * @throws XMLParseException If the stream couldn't be parsed.
+     */
+    public ArrayList<Channel> parseChannels(InputStream stream)
+            throws XMLParseException {
+        ArrayList<Channel> channels = new ArrayList<>();
+        XMLStreamReader reader = createReader(stream);
+        try {
+            Channel channel = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (channel == null && name.equals("channel")) {
+                        channel = new Channel();
+                        channel.setChannelName(
+                                reader.getAttributeValue(null, "name"));
+                        channel.setChannelId(Integer.parseInt(
+                                reader.getAttributeValue(null, "id")));
+                    } else if (channel != null) {
+                        setChannelAttribute(reader, name, channel);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT
+                        && channel != null
+                        && reader.getLocalName().equals("channel")) {
+                    channels.add(channel);
+                    channel = null;
+                }
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new XMLParseException("There was en exception reading the" +
+                    " channel XML from stream");
+        } finally {
+            close(reader, stream);
+        }
+        return channels;
+    }
+
+    /**
+     * Parses each episode in a schedule from the stream.
+     *
+     * @param stream The stream to be parsed.
+     * @return The episodes in the same order as in the XML.
+     * @throws XMLParseException If the stream couldn't be parsed.
+     */
+    public ArrayList<ChannelContent> parseChannelContent(InputStream stream)
+            throws XMLParseException {
+        ArrayList<ChannelContent> channelContent = new ArrayList<>();
+        XMLStreamReader reader = createReader(stream);
+        try {
+            ChannelContent content = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (name.equals("scheduledepisode")) {
+                        content = new ChannelContent();
+                    } else if (content != null) {
+                        setChannelContentAttribute(reader, name, content);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT
+                        && content != null
+                        && reader.getLocalName().equals("scheduledepisode")) {
+                    channelContent.add(content);
+                    content = null;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new XMLParseException("There was en exception reading the" +
+                    " schedule XML from stream");
+        } finally {
+            close(reader, stream);
+        }
+        return channelContent;
+    }
+
+    /*
+    Stores the text of the current element in the matching Channel
+    attribute. Only the first element of each name is used, in the same way
+    as the DOM parser.
+     */
+    private void setChannelAttribute(XMLStreamReader reader, String name,
+                                     Channel channel)
+            throws XMLStreamException {
+        switch (name) {
+            case "image":
+                if (channel.getImageURLString() == null) {
+                    channel.setImageURLString(reader.getElementText());
+                }
+                break;
+            case "color":
+                if (channel.getColorCode() == null) {
+                    channel.setColorCode(reader.getElementText());
+                }
+                break;
+            case "tagline":
+                if (channel.getChannelDescription() == null) {
+                    channel.setChannelDescription(reader.getElementText());
+                }
+                break;
+            case "siteurl":
+                if (channel.getSiteURLString() == null) {
+                    channel.setSiteURLString(reader.getElementText());
+                }
+                break;
+            case "scheduleurl":
+                if (channel.getScheduleURL() == null) {
+                    channel.setScheduleURL(reader.getElementText());
+                }
+                break;
+            case "channeltype":
+                if (channel.getChannelType() == null) {
+                    channel.setChannelType(reader.getElementText());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /*
+    Stores the text of the current element in the matching ChannelContent
+    attribute. Only the first element of each name is used, in the same way
+    as the DOM parser.
+     */
+    private void setChannelContentAttribute(XMLStreamReader reader,
+                                            String name,
+                                            ChannelContent content)
+            throws XMLStreamException {
+        switch (name) {
+            case "title":
+                if (content.getTitle() == null) {
+                    content.setTitle(reader.getElementText());
+                }
+                break;
+            case "episodeid":
+                if (content.getEpisodeID() == null) {
+                    content.setEpisodeID(reader.getElementText());
+                }
+                break;
+            case "description":
+                if (content.getDescription() == null) {
+                    content.setDescription(reader.getElementText());
+                }
+                break;
+            case "starttimeutc":
+                if (content.getStartTime() == ChannelContent.unknownTime) {
+                    content.setStartTime(parseTime(reader.getElementText()));
+                }
+                break;
+            case "endtimeutc":
+                if (content.getEndTime() == ChannelContent.unknownTime) {
+                    content.setEndTime(parseTime(reader.getElementText()));
+                }
+                break;
+            case "imageurl":
+                if (content.getImageURL() == null) {
+                    content.setImageURL(reader.getElementText());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /*
+    Creates a reader for the stream.
+     */
+    private XMLStreamReader createReader(InputStream stream)
+            throws XMLParseException {
+        try {
+            return factory.createXMLStreamReader(stream);
+        } catch (XMLStreamException e) {
+            throw new XMLParseException("There was en exception loading the" +
+                    " XML from stream");
+        }
+    }
+
+    /*
+    Closes both the reader and the stream, the reader doesn't close the
+    stream by itself.
+     */
+    private void close(XMLStreamReader reader, InputStream stream) {
+        try {
+            reader.close();
+            stream.close();
+        } catch (XMLStreamException | IOException e) { }
+    }
+
+    /*
+    Creates the factory shared by all readers. External entities and DTDs
+    are never needed from the API.
+     */
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(
+                XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
@@ -0,0 +1,184 @@
+package Main.Model.Parser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * <h1>Writes a stream to a file while it's read</h1>
+ *
+ * The bytes are written to a temporary file as they are read, so the
+ * stream can be parsed without first being kept in memory. The file
+ * replaces the target when the whole stream has been read. If the stream
+ * is closed before it ends, the rest of it is read so that the file is
+ * complete.
+ *
+ * Failing to write the file never fails the reading, it only means that
+ * the target isn't replaced.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class StoringInputStream extends FilterInputStream {
+
+    private final Path target;
+    private final Runnable storedListener;
+    private Path temp;
+    private OutputStream out;
+
+    /**
+     * Initializes the stream, and creates the temporary file in the same
+     * directory as the target.
+     *
+     * @param stream The stream that is read.
+     * @param target The file that is replaced when the stream ends.
+     * @param storedListener Called once when the target is replaced, from
+     *                       the thread reading the stream. Null if no
+     *                       listener is needed.
+     */
+    public StoringInputStream(InputStream stream, Path target,
+                              Runnable storedListener) {
+        super(stream);
+        this.target = target;
+        this.storedListener = storedListener;
+        try {
+            Files.createDirectories(target.getParent());
+            this.temp = Files.createTempFile(target.getParent(), "body",
+                    ".tmp");
+            this.out = Files.newOutputStream(this.temp);
+        } catch (IOException e) {
+            discard();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            write(new byte[] {(byte) b}, 0, 1);
+        } else {
+            store();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length)
+            throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read >= 0) {
+            write(buffer, offset, read);
+        } else {
+            store();
+        }
+        return read;
+    }
+
+    /**
+     * Skips bytes by reading them, so that they are written to the file.
+     *
+     * @param n The number of bytes to skip.
+     * @return The number of bytes skipped.
+     * @throws IOException If the stream couldn't be read.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.max(0, Math.min(8192, n))];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0,
+                    (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Reads the rest of the stream into the file, and closes it.
+     *
+     * @throws IOException If the stream couldn't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.out != null) {
+                byte[] buffer = new byte[8192];
+                while (this.out != null && read(buffer) >= 0) { }
+            }
+        } catch (IOException e) {
+            discard();
+        } finally {
+            super.close();
+        }
+    }
+
+    /*
+    Writes bytes that were read to the file, and gives up on the file if
+    it can't be written.
+     */
+    private void write(byte[] buffer, int offset, int length) {
+        if (this.out == null) {
+            return;
+        }
+        try {
+            this.out.write(buffer, offset, length);
+        } catch (IOException e) {
+            discard();
+        }
+    }
+
+    /*
+    Replaces the target with the file, the first time the end of the
+    stream is reached.
+     */
+    private void store() {
+        if (this.out == null) {
+            return;
+        }
+        try {
+            this.out.close();
+            this.out = null;
+            Files.move(this.temp, this.target,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            this.temp = null;
+        } catch (IOException e) {
+            discard();
+            return;
+        }
+        if (this.storedListener != null) {
+            this.storedListener.run();
+        }
+    }
+
+    /*
+    Removes the temporary file, so that the target isn't replaced.
+     */
+    private void discard() {
+        try {
+            if (this.out != null) {
+                this.out.close();
+            }
+        } catch (IOException e) { }
+        this.out = null;
+        try {
+            if (this.temp != null) {
+                Files.deleteIfExists(this.temp);
+            }
+        } catch (IOException e) { }
+        this.temp = null;
+    }
+}
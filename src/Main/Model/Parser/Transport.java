@@ -0,0 +1,26 @@
+package Main.Model.Parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <h1>Opens streams from urls</h1>
+ *
+ * Used by ParseTools.getStream when the API is called. Can be replaced
+ * with ParseTools.setTransport, eg to add caching or to use a fake API.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public interface Transport {
+
+    /**
+     * Opens a stream with the response body from an url.
+     *
+     * @param url The url that will be requested.
+     * @return An InputStream with the decoded response body.
+     * @throws IOException If the request failed or the response wasn't OK.
+     */
+    InputStream getStream(String url) throws IOException;
+}
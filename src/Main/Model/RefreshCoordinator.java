@@ -0,0 +1,150 @@
+package Main.Model;
+
+import Main.Model.Channel.ChannelContainer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * <h1>Makes sure that only one refresh runs at a time</h1>
+ *
+ * Runs Model.run on a single background thread. A refresh that is
+ * requested while another is in progress doesn't start a new one, it gets
+ * the result of the one in progress instead. A refresh can be cancelled,
+ * which interrupts the schedules that are being fetched.
+ *
+ * Each channel is also published as a ChannelUpdate as soon as it's done,
+ * through a Flow.Publisher. A subscriber that doesn't keep up slows down
+ * the fetching of the schedules instead of buffering without bound.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class RefreshCoordinator {
+
+    private final Model model;
+    private final ExecutorService executor;
+    private CompletableFuture<ChannelContainer> inFlight;
+    private SubmissionPublisher<ChannelUpdate> updates;
+    private Future<?> task;
+
+    /**
+     * Initializes the coordinator and it's background thread.
+     *
+     * @param model The model that is refreshed.
+     */
+    public RefreshCoordinator(Model model) {
+        this.model = model;
+        this.inFlight = null;
+        this.updates = null;
+        this.task = null;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a refresh, or attaches to the refresh in progress.
+     *
+     * <p>Cancelling the returned future only stops waiting for it, use
+     *    cancelRefresh to stop the refresh itself.</p>
+     *
+     * @param categories Channels will be sorted into each category.
+     * @return A future that completes with the result of the refresh, or
+     *         with a CancellationException if the refresh is cancelled.
+     */
+    public CompletableFuture<ChannelContainer> refresh(String[] categories) {
+        return refresh(categories, null);
+    }
+
+    /**
+     * Starts a refresh, or attaches to the refresh in progress, and
+     * subscribes to the channels of the refresh.
+     *
+     * <p>A subscriber that attaches to a refresh in progress only gets
+     *    the channels that are done after it attached. The subscription
+     *    completes when the refresh is done, or fails with a
+     *    CancellationException if it's cancelled.</p>
+     *
+     * @param categories Channels will be sorted into each category.
+     * @param subscriber Gets each channel as soon as it's done, or null.
+     * @return A future that completes with the result of the refresh, or
+     *         with a CancellationException if the refresh is cancelled.
+     */
+    public synchronized CompletableFuture<ChannelContainer> refresh(
+            String[] categories,
+            Flow.Subscriber<? super ChannelUpdate> subscriber) {
+        if (this.inFlight != null && !this.inFlight.isDone()) {
+            if (subscriber != null) {
+                this.updates.subscribe(subscriber);
+            }
+        } else {
+            CompletableFuture<ChannelContainer> result =
+                    new CompletableFuture<>();
+            SubmissionPublisher<ChannelUpdate> publisher =
+                    new SubmissionPublisher<>();
+            this.inFlight = result;
+            this.updates = publisher;
+            // subscribes before the refresh can publish anything
+            if (subscriber != null) {
+                publisher.subscribe(subscriber);
+            }
+            this.task = this.executor.submit(() -> {
+                try {
+                    result.complete(this.model.run(categories,
+                            update -> publish(publisher, update)));
+                    publisher.close();
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    publisher.closeExceptionally(e);
+                }
+            });
+        }
+        return this.inFlight.copy();
+    }
+
+    /**
+     * Checks if a refresh is in progress.
+     *
+     * @return True if there is a refresh that hasn't completed.
+     */
+    public synchronized boolean isRefreshing() {
+        return this.inFlight != null && !this.inFlight.isDone();
+    }
+
+    /**
+     * Cancels the refresh in progress, and interrupts the schedules that
+     * are being fetched. The next refresh doesn't start until the
+     * cancelled one has stopped.
+     *
+     * @return True if a refresh was cancelled.
+     */
+    public synchronized boolean cancelRefresh() {
+        if (!isRefreshing()) {
+            return false;
+        }
+        boolean cancelled = this.inFlight.cancel(false);
+        this.updates.closeExceptionally(new CancellationException(
+                "The refresh was cancelled"));
+        this.task.cancel(true);
+        return cancelled;
+    }
+
+    /*
+    Publishes a channel, waiting while a subscriber's buffer is full.
+    Channels that are done after the refresh was cancelled are dropped.
+     */
+    private void publish(SubmissionPublisher<ChannelUpdate> publisher,
+                         ChannelUpdate update) {
+        try {
+            publisher.submit(update);
+        } catch (IllegalStateException e) { }
+    }
+}
@@ -0,0 +1,265 @@
+package Main.Model;
+
+import Main.Model.Parser.ParserEngine;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * <h1>Holds the configurable settings of the application</h1>
+ *
+ * Each setting is read from a system property, eg
+ * -Dradio.parallelism=4, and falls back to a default value if the
+ * property is missing or malformed.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class Settings {
+
+    private Settings() { }
+
+    /**
+     * Retrieves the base url of the API, eg to use a local stand-in for
+     * testing.
+     *
+     * @return The url set by radio.api.url without a trailing slash,
+     *         https://api.sr.se/api/v2 by default.
+     */
+    public static String getApiUrl() {
+        String url = System.getProperty("radio.api.url",
+                "https://api.sr.se/api/v2").trim();
+        while (url.endsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        }
+        return url.isEmpty() ? "https://api.sr.se/api/v2" : url;
+    }
+
+    /**
+     * Retrieves the maximum number of schedules that are fetched at the
+     * same time.
+     *
+     * <p>A value of 1 fetches the schedules one at a time.</p>
+     *
+     * @return The parallelism, at least 1.
+     */
+    public static int getParallelism() {
+        return Math.max(1, getInt("radio.parallelism", 8));
+    }
+
+    /**
+     * Retrieves how long the channel list is cached before it is
+     * downloaded again.
+     *
+     * @return The time to live in milliseconds.
+     */
+    public static long getMetadataTimeToLiveMillis() {
+        return getInt("radio.metadata.ttl.hours", 7 * 24) * 60L * 60 * 1000;
+    }
+
+    /**
+     * Retrieves the engine used for parsing the responses from the API.
+     *
+     * <p>The JSON engine also makes the API respond with JSON instead
+     *    of XML.</p>
+     *
+     * @return The engine set by radio.parser.engine, DOM by default.
+     */
+    public static ParserEngine getParserEngine() {
+        try {
+            return ParserEngine.valueOf(System.getProperty(
+                    "radio.parser.engine", "DOM").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ParserEngine.DOM;
+        }
+    }
+
+    /**
+     * Retrieves how long to wait for a connection to the API.
+     *
+     * @return The connect timeout in milliseconds, at least 1.
+     */
+    public static int getConnectTimeoutMillis() {
+        return Math.max(1, getInt("radio.http.connect.timeout.ms", 5000));
+    }
+
+    /**
+     * Retrieves how long to wait for a response from the API, until the
+     * headers are received.
+     *
+     * @return The request timeout in milliseconds, at least 1.
+     */
+    public static int getRequestTimeoutMillis() {
+        return Math.max(1, getInt("radio.http.request.timeout.ms", 15000));
+    }
+
+    /**
+     * Retrieves how long a read of a response body may wait for more data
+     * from the API.
+     *
+     * @return The read timeout in milliseconds, at least 1.
+     */
+    public static int getReadTimeoutMillis() {
+        return Math.max(1, getInt("radio.http.read.timeout.ms", 15000));
+    }
+
+    /**
+     * Retrieves how long the schedules of a refresh may take. Schedules
+     * that aren't fetched before the budget is spent keeps the episodes of
+     * the previous refresh.
+     *
+     * @return The budget in milliseconds, 0 or less if there is no budget.
+     */
+    public static int getRefreshBudgetMillis() {
+        return getInt("radio.refresh.budget.ms", 60000);
+    }
+
+    /**
+     * Retrieves the latency percentile after which a slow schedule
+     * request is sent again, and the first response is used.
+     *
+     * @return The percentile between 0 and 100, 0 if requests shouldn't
+     *         be sent again.
+     */
+    public static int getHedgePercentile() {
+        return Math.max(0, Math.min(100, getInt("radio.hedge.percentile",
+                95)));
+    }
+
+    /**
+     * Checks if API responses should be stored in the HTTP cache.
+     *
+     * @return The value of radio.http.cache, true by default.
+     */
+    public static boolean isHttpCacheEnabled() {
+        return Boolean.parseBoolean(System.getProperty(
+                "radio.http.cache", "true").trim());
+    }
+
+    /**
+     * Retrieves the directory where the HTTP cache stores responses.
+     *
+     * @return The directory set by radio.http.cache.dir, by default
+     *         .radioapp/http-cache in the home directory.
+     */
+    public static Path getHttpCacheDirectory() {
+        return getPath("radio.http.cache.dir", "http-cache");
+    }
+
+    /**
+     * Retrieves how long a cached response can be unused before it is
+     * removed from the HTTP cache.
+     *
+     * @return The time in milliseconds.
+     */
+    public static long getHttpCacheMaxUnusedMillis() {
+        return getInt("radio.http.cache.max.unused.days", 7)
+                * 24L * 60 * 60 * 1000;
+    }
+
+    /**
+     * Retrieves the file where the last parsed channels are stored.
+     *
+     * @return The file set by radio.snapshot.file, by default
+     *         .radioapp/snapshot.bin in the home directory. Null if
+     *         radio.snapshot is false.
+     */
+    public static Path getSnapshotFile() {
+        if (!Boolean.parseBoolean(System.getProperty(
+                "radio.snapshot", "true").trim())) {
+            return null;
+        }
+        return getPath("radio.snapshot.file", "snapshot.bin");
+    }
+
+    /**
+     * Retrieves how much memory the decoded episode images may use.
+     *
+     * @return The size of the image cache in bytes.
+     */
+    public static long getImageCacheBytes() {
+        return getInt("radio.image.cache.mb", 32) * 1024L * 1024;
+    }
+
+    /**
+     * Checks if episode and channel artwork should be stored on disk.
+     *
+     * @return The value of radio.artwork.cache, true by default.
+     */
+    public static boolean isArtworkCacheEnabled() {
+        return Boolean.parseBoolean(System.getProperty(
+                "radio.artwork.cache", "true").trim());
+    }
+
+    /**
+     * Retrieves the directory where artwork is stored.
+     *
+     * @return The directory set by radio.artwork.cache.dir, by default
+     *         .radioapp/artwork in the home directory.
+     */
+    public static Path getArtworkCacheDirectory() {
+        return getPath("radio.artwork.cache.dir", "artwork");
+    }
+
+    /**
+     * Retrieves how much disk space the stored artwork may use.
+     *
+     * @return The size of the artwork cache in bytes.
+     */
+    public static long getArtworkCacheBytes() {
+        return getInt("radio.artwork.cache.mb", 64) * 1024L * 1024;
+    }
+
+    /**
+     * Retrieves the port the schedule server listens on.
+     *
+     * @return The value of radio.server.port, 8080 by default.
+     */
+    public static int getServerPort() {
+        return getInt("radio.server.port", 8080);
+    }
+
+    /**
+     * Retrieves the number of threads that handles requests in the
+     * schedule server.
+     *
+     * @return The number of threads, at least 1.
+     */
+    public static int getServerThreads() {
+        return Math.max(1, getInt("radio.server.threads", 16));
+    }
+
+    /**
+     * Retrieves how often the schedule server refreshes the schedules.
+     *
+     * @return The refresh interval in minutes, at least 1.
+     */
+    public static int getServerRefreshMinutes() {
+        return Math.max(1, getInt("radio.server.refresh.minutes", 60));
+    }
+
+    /*
+    Reads a path system property, or returns the default path in the
+    .radioapp directory in the home directory.
+     */
+    private static Path getPath(String key, String defaultName) {
+        String path = System.getProperty(key);
+        if (path != null && !path.isBlank()) {
+            return Paths.get(path.trim());
+        }
+        return Paths.get(System.getProperty("user.home"), ".radioapp",
+                defaultName);
+    }
+
+    /*
+    Reads an integer system property, or returns the default value.
+     */
+    private static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(System.getProperty(key,
+                    String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
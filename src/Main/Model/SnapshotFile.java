@@ -0,0 +1,205 @@
+package Main.Model;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContainer;
+import Main.Model.Channel.ChannelContent;
+import Main.Model.Channel.ChannelHolder;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h1>Stores the channels in a compact binary file</h1>
+ *
+ * The last successfully parsed ChannelContainer is written to the file,
+ * so that it can be shown directly when the application starts instead of
+ * waiting for the API. The file is memory mapped when it is read.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class SnapshotFile {
+
+    private static final int magic = 0x52534e50;
+    private static final int version = 2;
+
+    private final Path path;
+
+    /**
+     * Initializes the path attribute.
+     *
+     * @param path The path of the snapshot file.
+     */
+    public SnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Writes the channels to the file, replacing the old snapshot.
+     *
+     * <p>The file is first written to a temporary file and then moved,
+     *    so a crash never leaves a half written snapshot.</p>
+     *
+     * @param channelContainer The channels that will be stored.
+     * @throws IOException If the file couldn't be written.
+     */
+    public void write(ChannelContainer channelContainer) throws IOException {
+        Path directory = this.path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "snapshot", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            Map<String, ChannelHolder> sortedChannels =
+                    channelContainer.getSortedChannels();
+            out.writeInt(sortedChannels.size());
+            for (Map.Entry<String, ChannelHolder> entry
+                    : sortedChannels.entrySet()) {
+                writeString(out, entry.getKey());
+                writeChannelHolder(out, entry.getValue());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the channels from the file.
+     *
+     * @return A ChannelContainer with the stored channels, or null if
+     *         there is no snapshot or it couldn't be read.
+     */
+    public ChannelContainer read() {
+        if (!Files.isRegularFile(this.path)) {
+            return null;
+        }
+        try (FileChannel file = FileChannel.open(this.path,
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY,
+                    0, file.size());
+            if (buffer.getInt() != magic || buffer.getInt() != version) {
+                return null;
+            }
+            Map<String, ChannelHolder> sortedChannels = new HashMap<>();
+            int categories = buffer.getInt();
+            for (int i = 0; i < categories; i++) {
+                String category = readString(buffer);
+                sortedChannels.put(category, readChannelHolder(buffer));
+            }
+            ChannelContainer channelContainer = new ChannelContainer();
+            channelContainer.setSortedChannels(sortedChannels);
+            return channelContainer;
+        } catch (IOException | BufferUnderflowException
+                 | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /*
+    Writes every channel in the holder.
+     */
+    private void writeChannelHolder(DataOutputStream out,
+                                    ChannelHolder channelHolder)
+            throws IOException {
+        out.writeInt(channelHolder.getChannels().size());
+        for (Channel channel : channelHolder.getChannels()) {
+            writeString(out, channel.getChannelName());
+            out.writeInt(channel.getChannelId());
+            writeString(out, channel.getChannelContentErrorMessage());
+            writeString(out, channel.getScheduleURL());
+            writeString(out, channel.getImageURLString());
+            writeString(out, channel.getColorCode());
+            writeString(out, channel.getChannelDescription());
+            writeString(out, channel.getSiteURLString());
+            writeString(out, channel.getChannelType());
+            out.writeInt(channel.getChannelContent().size());
+            for (ChannelContent content : channel.getChannelContent()) {
+                writeString(out, content.getEpisodeID());
+                writeString(out, content.getTitle());
+                writeString(out, content.getDescription());
+                out.writeLong(content.getStartTime());
+                out.writeLong(content.getEndTime());
+                writeString(out, content.getImageURL());
+            }
+        }
+    }
+
+    /*
+    Reads every channel in a holder.
+     */
+    private ChannelHolder readChannelHolder(MappedByteBuffer buffer) {
+        ChannelHolder channelHolder = new ChannelHolder();
+        int channels = buffer.getInt();
+        for (int i = 0; i < channels; i++) {
+            Channel channel = new Channel();
+            channel.setChannelName(readString(buffer));
+            channel.setChannelId(buffer.getInt());
+            channel.setChannelContentErrorMessage(readString(buffer));
+            channel.setScheduleURL(readString(buffer));
+            channel.setImageURLString(readString(buffer));
+            channel.setColorCode(readString(buffer));
+            channel.setChannelDescription(readString(buffer));
+            channel.setSiteURLString(readString(buffer));
+            channel.setChannelType(readString(buffer));
+            int episodes = buffer.getInt();
+            for (int j = 0; j < episodes; j++) {
+                ChannelContent content = new ChannelContent();
+                content.setEpisodeID(readString(buffer));
+                content.setTitle(readString(buffer));
+                content.setDescription(readString(buffer));
+                content.setStartTime(buffer.getLong());
+                content.setEndTime(buffer.getLong());
+                content.setImageURL(readString(buffer));
+                channel.addChannelContent(content);
+            }
+            channelHolder.addChannel(channel);
+        }
+        return channelHolder;
+    }
+
+    /*
+    Writes a string that can be null, as it's length followed by the
+    UTF-8 bytes. Null is written as the length -1.
+     */
+    private void writeString(DataOutputStream out, String string)
+            throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /*
+    Reads a string written by writeString.
+     */
+    private String readString(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt snapshot");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,8 +1,13 @@
 package Main;
 
 import Main.Controller.Controller;
+import Main.Model.Metrics.Metrics;
 import Main.Model.Model;
+import Main.Model.Parser.ParseTools;
+import Main.Model.Settings;
+import Main.Model.SnapshotFile;
 import Main.View.View;
+import java.util.prefs.Preferences;
 import javax.swing.*;
 
 /**
@@ -23,13 +28,22 @@ public class Radio {
     /**
      * Initializes the Controller object on the EDT.
      *
-     * <p>Initializes the Model, View, Controller objects.</p>
+     * <p>Initializes the Model, View, Controller objects. The model stores
+     * a snapshot of the channels unless it's turned off in Settings, and
+     * the API responses in the HTTP cache in the same way. The metrics are
+     * registered in JMX, so they can be read with eg JConsole.</p>
      *
      * @param args
      */
     public static void main(String[] args) {
+        SnapshotFile snapshotFile = Settings.getSnapshotFile() != null
+                ? new SnapshotFile(Settings.getSnapshotFile())
+                : null;
+        ParseTools.setDefaultTransport();
+        Metrics.registerMBean();
         SwingUtilities.invokeLater(() ->
-                new Controller(new Model(), new View()));
+                new Controller(new Model(snapshotFile), new View(),
+                        Preferences.userNodeForPackage(Controller.class)));
 
     }
 }
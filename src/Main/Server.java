@@ -0,0 +1,296 @@
+package Main;
+
+import Main.Model.Export.Json;
+import Main.Model.Export.ScheduleResponses;
+import Main.Model.Metrics.Metrics;
+import Main.Model.Model;
+import Main.Model.Parser.ParseTools;
+import Main.Model.Settings;
+import Main.Model.SnapshotFile;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Serves the radio schedules over HTTP</h1>
+ *
+ * Serves the current snapshot of the model as JSON, without a GUI. The
+ * stored snapshot is served directly on start, and the model is refreshed
+ * in the background every radio.server.refresh.minutes. Requests never
+ * wait for a refresh, they are always answered from the last complete
+ * snapshot.
+ *
+ * Endpoints:
+ * GET /channels[?category=P1]
+ * GET /schedule/{channelId}[?from=...&amp;to=...]
+ * GET /now-playing
+ * GET /metrics (in the Prometheus text format)
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class Server {
+
+    private static final String contentType =
+            "application/json; charset=utf-8";
+    private static final String metricsContentType =
+            "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ScheduleResponses responses;
+
+    /**
+     * Initializes the responses attribute.
+     *
+     * @param responses Serializes the responses from the snapshot.
+     */
+    public Server(ScheduleResponses responses) {
+        this.responses = responses;
+    }
+
+    /**
+     * Loads the snapshot, starts the refreshes and starts the server on
+     * the port set by radio.server.port.
+     *
+     * @param args Not used.
+     * @throws IOException If the server couldn't be started.
+     */
+    public static void main(String[] args) throws IOException {
+        Path snapshotPath = Settings.getSnapshotFile();
+        Model model = new Model(snapshotPath == null ? null
+                : new SnapshotFile(snapshotPath));
+        ParseTools.setDefaultTransport();
+        Metrics.registerMBean();
+        model.loadSnapshot();
+        String[] categories = Model.getDefaultCategories();
+
+        ScheduledExecutorService refresher = Executors
+                .newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        refresher.scheduleWithFixedDelay(() -> refresh(model, categories),
+                0, Settings.getServerRefreshMinutes(), TimeUnit.MINUTES);
+
+        ExecutorService handlers = Executors.newFixedThreadPool(
+                Settings.getServerThreads(), runnable -> {
+                    Thread thread = new Thread(runnable, "http-handler");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        HttpServer httpServer = HttpServer.create(
+                new InetSocketAddress(Settings.getServerPort()), 0);
+        new Server(new ScheduleResponses(model::getSnapshot, categories))
+                .createContexts(httpServer);
+        httpServer.setExecutor(handlers);
+        httpServer.start();
+        System.err.println("Serving schedules on port "
+                + httpServer.getAddress().getPort());
+    }
+
+    /**
+     * Adds the endpoints to a server.
+     *
+     * @param httpServer The server that will handle the requests.
+     */
+    public void createContexts(HttpServer httpServer) {
+        httpServer.createContext("/channels", handler(this::channels));
+        httpServer.createContext("/schedule/", handler(this::schedule));
+        httpServer.createContext("/now-playing", handler(this::nowPlaying));
+        httpServer.createContext("/metrics", exchange -> {
+            try (exchange) {
+                if (isGet(exchange)) {
+                    metrics(exchange);
+                }
+            }
+        });
+    }
+
+    /*
+    Responds with the metrics in the Prometheus text format.
+     */
+    private static void metrics(HttpExchange exchange) throws IOException {
+        byte[] metrics = Metrics.getDefault().getPrometheusText()
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                metricsContentType);
+        exchange.sendResponseHeaders(200, metrics.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(metrics);
+        }
+    }
+
+    /*
+    Refreshes the model. An error keeps the previous snapshot, and the
+    next refresh tries again. Unexpected exceptions are caught as well,
+    since they would otherwise stop the scheduled refreshes for good.
+     */
+    private static void refresh(Model model, String[] categories) {
+        try {
+            String errorMessage = model.run(categories).getErrorMessage();
+            if (errorMessage != null) {
+                System.err.println("Refresh failed: " + errorMessage);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Refresh failed: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    /*
+    Responds with the channels, of a single category if given.
+     */
+    private void channels(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/channels")) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        String category = getQuery(exchange).get("category");
+        send(exchange, 200, this.responses.getChannels(category));
+    }
+
+    /*
+    Responds with the episodes of a channel within a time range.
+     */
+    private void schedule(HttpExchange exchange) throws IOException {
+        String id = exchange.getRequestURI().getPath()
+                .substring("/schedule/".length());
+        int channelId;
+        Long from;
+        Long to;
+        try {
+            channelId = Integer.parseInt(id);
+            Map<String, String> query = getQuery(exchange);
+            from = parseTime(query.get("from"));
+            to = parseTime(query.get("to"));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            sendError(exchange, 400, "Invalid channel id or time");
+            return;
+        }
+        byte[] response;
+        try {
+            response = this.responses.getSchedule(channelId, from, to,
+                    Instant.now().getEpochSecond());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        if (response == null) {
+            sendError(exchange, 404, "Unknown channel");
+        } else {
+            send(exchange, 200, response);
+        }
+    }
+
+    /*
+    Responds with the episode that is broadcast right now on each channel.
+     */
+    private void nowPlaying(HttpExchange exchange) throws IOException {
+        send(exchange, 200, this.responses.getNowPlaying(
+                Instant.now().getEpochSecond()));
+    }
+
+    /*
+    Wraps an endpoint, so that only GET is allowed and nothing is served
+    before the first snapshot.
+     */
+    private HttpHandler handler(HttpHandler endpoint) {
+        return exchange -> {
+            try (exchange) {
+                if (!isGet(exchange)) {
+                    return;
+                }
+                if (!this.responses.hasSnapshot()) {
+                    sendError(exchange, 503, "No schedules loaded yet");
+                } else {
+                    endpoint.handle(exchange);
+                }
+            }
+        };
+    }
+
+    /*
+    Checks that a request is a GET, otherwise it's answered with 405.
+     */
+    private static boolean isGet(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("GET")) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", "GET");
+        sendError(exchange, 405, "Method not allowed");
+        return false;
+    }
+
+    /*
+    Parses a time given either as epoch seconds or as an ISO-8601
+    instant, eg 2022-01-01T12:00:00Z. Returns null if there is no time.
+     */
+    private static Long parseTime(String time) {
+        if (time == null || time.isBlank()) {
+            return null;
+        }
+        if (time.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(time);
+        }
+        return Instant.parse(time).getEpochSecond();
+    }
+
+    /*
+    Decodes the query parameters of a request.
+     */
+    private static Map<String, String> getQuery(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, equals),
+                                StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(equals + 1),
+                                StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    /*
+    Sends an error as a JSON object.
+     */
+    private static void sendError(HttpExchange exchange, int status,
+                                  String message) throws IOException {
+        StringBuilder json = new StringBuilder("{");
+        Json.appendMember(json, "error", message, true);
+        send(exchange, status, json.append('}').toString()
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+    Sends a JSON response.
+     */
+    private static void send(HttpExchange exchange, int status,
+                             byte[] response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(response);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package Main.View;
+
+import Main.Model.Settings;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>Stores episode and channel artwork on disk</h1>
+ *
+ * The images are stored by the SHA-256 hash of their content, so an image
+ * that is used by several episodes or urls is only stored once. Each url
+ * has a small file pointing to the content it had when it was downloaded.
+ * Next to each image, scaled down thumbnails can be stored for each size
+ * they are shown in, so that they don't have to be decoded and scaled
+ * again.
+ *
+ * When the files use more than the maximum size, the least recently used
+ * images are removed together with their thumbnails and the urls pointing
+ * to them. Urls pointing to an image that is gone are removed as well.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class ArtworkCache {
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * Initializes a cache in the directory and with the size set in
+     * Settings.
+     */
+    public ArtworkCache() {
+        this(Settings.getArtworkCacheDirectory(),
+                Settings.getArtworkCacheBytes());
+    }
+
+    /**
+     * Initializes a cache in a directory.
+     *
+     * @param directory The directory where the artwork is stored.
+     * @param maxBytes The disk space the artwork may use.
+     */
+    public ArtworkCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Retrieves the stored image of an url.
+     *
+     * @param url The url of the image.
+     * @return The encoded image, or null if it isn't stored.
+     */
+    public byte[] get(String url) {
+        Path image = getImageFile(url);
+        if (image == null) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(image);
+            touch(image);
+            return bytes;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the image of an url, and removes the least recently used
+     * images if the cache has grown too large.
+     *
+     * @param url The url of the image.
+     * @param bytes The encoded image.
+     */
+    public synchronized void put(String url, byte[] bytes) {
+        String contentHash = hash(bytes);
+        try {
+            Files.createDirectories(this.directory);
+            Path image = this.directory.resolve(contentHash + ".img");
+            if (Files.exists(image)) {
+                touch(image);
+            } else {
+                write(image, bytes);
+            }
+            write(this.directory.resolve(hash(url) + ".url"),
+                    contentHash.getBytes(StandardCharsets.UTF_8));
+            removeLeastRecentlyUsed();
+        } catch (IOException e) { }
+    }
+
+    /**
+     * Retrieves a stored thumbnail of an url.
+     *
+     * @param url The url of the image.
+     * @param width The largest width of the thumbnail.
+     * @param height The largest height of the thumbnail.
+     * @return The thumbnail, or null if it isn't stored.
+     */
+    public BufferedImage getThumbnail(String url, int width, int height) {
+        Path image = getImageFile(url);
+        if (image == null) {
+            return null;
+        }
+        Path thumbnail = getThumbnailFile(image, width, height);
+        if (!Files.isRegularFile(thumbnail)) {
+            return null;
+        }
+        try {
+            BufferedImage read = ImageIO.read(thumbnail.toFile());
+            touch(image);
+            return read;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores a thumbnail of an url. The image itself must already be
+     * stored with put.
+     *
+     * @param url The url of the image.
+     * @param width The largest width of the thumbnail.
+     * @param height The largest height of the thumbnail.
+     * @param thumbnail The scaled down image.
+     */
+    public synchronized void putThumbnail(String url, int width, int height,
+                                          BufferedImage thumbnail) {
+        Path image = getImageFile(url);
+        if (image == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(thumbnail, "png", png);
+            write(getThumbnailFile(image, width, height), png.toByteArray());
+            removeLeastRecentlyUsed();
+        } catch (IOException e) { }
+    }
+
+    /*
+    Finds the stored image of an url, or returns null if there is none.
+     */
+    private Path getImageFile(String url) {
+        Path urlFile = this.directory.resolve(hash(url) + ".url");
+        try {
+            String contentHash = Files.readString(urlFile,
+                    StandardCharsets.UTF_8).trim();
+            Path image = this.directory.resolve(contentHash + ".img");
+            return Files.isRegularFile(image) ? image : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /*
+    Creates the path of a thumbnail, next to it's image.
+     */
+    private Path getThumbnailFile(Path image, int width, int height) {
+        String name = image.getFileName().toString().replace(".img", "");
+        return image.resolveSibling(name + "-" + width + "x" + height
+                + ".png");
+    }
+
+    /*
+    Removes the least recently used images, their thumbnails and the urls
+    pointing to them until every file fits in maxBytes. Urls pointing to
+    an image that is gone are removed first.
+     */
+    private void removeLeastRecentlyUsed() throws IOException {
+        List<Path> images = new ArrayList<>();
+        List<Path> urls = new ArrayList<>();
+        long usedBytes = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(
+                this.directory, "*.{img,png,url}")) {
+            for (Path file : files) {
+                usedBytes += Files.size(file);
+                if (file.toString().endsWith(".img")) {
+                    images.add(file);
+                } else if (file.toString().endsWith(".url")) {
+                    urls.add(file);
+                }
+            }
+        }
+        if (usedBytes <= this.maxBytes) {
+            return;
+        }
+        // the urls pointing to each image, by the name of the image
+        Map<String, List<Path>> pointers = new HashMap<>();
+        for (Path url : urls) {
+            String contentHash = Files.readString(url,
+                    StandardCharsets.UTF_8).trim();
+            if (Files.isRegularFile(this.directory.resolve(
+                    contentHash + ".img"))) {
+                pointers.computeIfAbsent(contentHash,
+                        key -> new ArrayList<>()).add(url);
+            } else {
+                usedBytes -= Files.size(url);
+                Files.deleteIfExists(url);
+            }
+        }
+        images.sort(Comparator.comparing(this::lastUsed));
+        for (Path image : images) {
+            if (usedBytes <= this.maxBytes) {
+                break;
+            }
+            String name = image.getFileName().toString().replace(".img", "");
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(
+                    this.directory, name + "*")) {
+                for (Path file : files) {
+                    usedBytes -= Files.size(file);
+                    Files.deleteIfExists(file);
+                }
+            }
+            for (Path url : pointers.getOrDefault(name, List.of())) {
+                usedBytes -= Files.size(url);
+                Files.deleteIfExists(url);
+            }
+        }
+    }
+
+    /*
+    Retrieves when an image was last used.
+     */
+    private FileTime lastUsed(Path image) {
+        try {
+            return Files.getLastModifiedTime(image);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /*
+    Marks an image as used, so that it's removed last.
+     */
+    private void touch(Path image) {
+        try {
+            Files.setLastModifiedTime(image,
+                    FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) { }
+    }
+
+    /*
+    Writes a file, replacing the old one without ever leaving it half
+    written.
+     */
+    private void write(Path file, byte[] bytes) throws IOException {
+        Path temp = Files.createTempFile(this.directory, "artwork", ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /*
+    Creates the SHA-256 hash of a string.
+     */
+    private static String hash(String string) {
+        return hash(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+    Creates the SHA-256 hash of some bytes.
+     */
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(bytes);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package Main.View;
+
+import Main.Model.Settings;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <h1>Loads episode images without blocking the EDT</h1>
+ *
+ * Images are downloaded and decoded on a background thread. Large images
+ * are subsampled while they are decoded, so that they are never larger
+ * than the popup in memory. The decoded images are kept in an LRU cache
+ * bounded by their size in bytes, and an image that is already loading
+ * is never requested twice.
+ *
+ * With an ArtworkCache, the downloaded images and their subsampled
+ * thumbnails are also stored on disk, and are read from there the next
+ * time they are loaded.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class ImageLoader {
+
+    private final int maxWidth;
+    private final int maxHeight;
+    private final long maxBytes;
+    private final ArtworkCache artworkCache;
+    private final ExecutorService executor;
+    private final LinkedHashMap<String, ImageIcon> images;
+    private final Map<String, CompletableFuture<ImageIcon>> loading;
+    private long usedBytes;
+
+    /**
+     * Initializes a loader with the cache sizes set in Settings.
+     *
+     * @param maxWidth The largest width of a loaded image.
+     * @param maxHeight The largest height of a loaded image.
+     */
+    public ImageLoader(int maxWidth, int maxHeight) {
+        this(maxWidth, maxHeight, Settings.getImageCacheBytes(),
+                Settings.isArtworkCacheEnabled() ? new ArtworkCache() : null);
+    }
+
+    /**
+     * Initializes a loader that only caches the images in memory.
+     *
+     * @param maxWidth The largest width of a loaded image.
+     * @param maxHeight The largest height of a loaded image.
+     * @param maxBytes The memory the cached images may use.
+     */
+    public ImageLoader(int maxWidth, int maxHeight, long maxBytes) {
+        this(maxWidth, maxHeight, maxBytes, null);
+    }
+
+    /**
+     * Initializes the loader and it's background threads.
+     *
+     * @param maxWidth The largest width of a loaded image.
+     * @param maxHeight The largest height of a loaded image.
+     * @param maxBytes The memory the cached images may use.
+     * @param artworkCache The disk cache for the images, or null.
+     */
+    public ImageLoader(int maxWidth, int maxHeight, long maxBytes,
+                       ArtworkCache artworkCache) {
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.maxBytes = maxBytes;
+        this.artworkCache = artworkCache;
+        this.images = new LinkedHashMap<>(16, 0.75f, true);
+        this.loading = new HashMap<>();
+        this.usedBytes = 0;
+        this.executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "image-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads an image in the background.
+     *
+     * @param url The url of the image.
+     * @return A future that completes with the image, or with null if the
+     *         url is missing or the image couldn't be loaded. Completes
+     *         directly if the image is cached.
+     */
+    public synchronized CompletableFuture<ImageIcon> load(String url) {
+        if (url == null || url.isBlank()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ImageIcon image = this.images.get(url);
+        if (image != null) {
+            return CompletableFuture.completedFuture(image);
+        }
+        CompletableFuture<ImageIcon> future = this.loading.get(url);
+        if (future == null) {
+            future = CompletableFuture
+                    .supplyAsync(() -> decode(url), this.executor)
+                    .handle((loaded, e) -> store(url, loaded));
+            // the future may already be done if the image was decoded
+            if (!future.isDone()) {
+                this.loading.put(url, future);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Retrieves the memory used by the cached images.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    /*
+    Stores a loaded image in the cache, and removes the least recently
+    used images until the cache fits in maxBytes.
+     */
+    private synchronized ImageIcon store(String url, ImageIcon image) {
+        this.loading.remove(url);
+        if (image == null) {
+            return null;
+        }
+        long bytes = sizeOf(image);
+        if (bytes <= this.maxBytes && !this.images.containsKey(url)) {
+            this.images.put(url, image);
+            this.usedBytes += bytes;
+            Iterator<ImageIcon> eldest = this.images.values().iterator();
+            while (this.usedBytes > this.maxBytes && eldest.hasNext()) {
+                this.usedBytes -= sizeOf(eldest.next());
+                eldest.remove();
+            }
+        }
+        return image;
+    }
+
+    /*
+    Decodes an image, reading only every n:th pixel of images larger than
+    maxWidth or maxHeight. Uses the thumbnail or image stored in the
+    artwork cache if there is one, otherwise the image is downloaded.
+     */
+    private ImageIcon decode(String url) {
+        if (this.artworkCache != null) {
+            BufferedImage thumbnail = this.artworkCache.getThumbnail(url,
+                    this.maxWidth, this.maxHeight);
+            if (thumbnail != null) {
+                return new ImageIcon(thumbnail);
+            }
+        }
+        try {
+            byte[] bytes = this.artworkCache == null
+                    ? null : this.artworkCache.get(url);
+            if (bytes == null) {
+                bytes = download(url);
+                if (this.artworkCache != null) {
+                    this.artworkCache.put(url, bytes);
+                }
+            }
+            try (ImageInputStream input = ImageIO.createImageInputStream(
+                    new ByteArrayInputStream(bytes))) {
+                BufferedImage image = read(input);
+                if (image == null) {
+                    return null;
+                }
+                if (this.artworkCache != null) {
+                    this.artworkCache.putThumbnail(url, this.maxWidth,
+                            this.maxHeight, image);
+                }
+                return new ImageIcon(image);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    Downloads the encoded image from an url.
+     */
+    private byte[] download(String url) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(Settings.getConnectTimeoutMillis());
+        connection.setReadTimeout(Settings.getRequestTimeoutMillis());
+        try (InputStream stream = connection.getInputStream()) {
+            return stream.readAllBytes();
+        }
+    }
+
+    /*
+    Reads the first image in the stream with a subsampling that makes it
+    fit inside maxWidth and maxHeight.
+     */
+    private BufferedImage read(ImageInputStream input) throws IOException {
+        if (input == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int subsampling = Math.max(1, Math.max(
+                    ceilDiv(width, this.maxWidth),
+                    ceilDiv(height, this.maxHeight)));
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /*
+    Divides and rounds up.
+     */
+    private static int ceilDiv(int dividend, int divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    /*
+    Estimates the memory used by a decoded image, four bytes per pixel.
+     */
+    private static long sizeOf(ImageIcon image) {
+        return 4L * image.getIconWidth() * image.getIconHeight();
+    }
+}
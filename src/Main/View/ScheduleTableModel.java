@@ -0,0 +1,89 @@
+package Main.View;
+
+import Main.Model.Channel.ChannelContent;
+import javax.swing.table.AbstractTableModel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <h1>Shows the episodes of a channel in the table</h1>
+ *
+ * Backed directly by the list of episodes, the cells are read from the
+ * episodes when they are rendered. Replacing the episodes fires a single
+ * table event, no matter how many episodes there are.
+ *
+ * @author Ludwig Fallstrom (dv20lfm@cs.umu.se)
+ * @version 2.0
+ * @since 2022-01-13
+ */
+public class ScheduleTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] columnNames = {
+            "Episode", "Start Time (CET)", "End Time (CET)"
+    };
+
+    private List<ChannelContent> channelContent;
+
+    /**
+     * Initializes an empty table.
+     */
+    public ScheduleTableModel() {
+        this.channelContent = Collections.emptyList();
+    }
+
+    /**
+     * Replaces the episodes in the table. Must be called on the EDT.
+     *
+     * @param channelContent The episodes, which must not be changed while
+     *                       they are shown.
+     */
+    public void setChannelContent(List<ChannelContent> channelContent) {
+        this.channelContent = channelContent;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Retrieves the episode shown in a row.
+     *
+     * @param row The index of the row.
+     * @return The episode, or null if there is no such row.
+     */
+    public ChannelContent getChannelContentAt(int row) {
+        if (row < 0 || row >= this.channelContent.size()) {
+            return null;
+        }
+        return this.channelContent.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.channelContent.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        ChannelContent content = this.channelContent.get(row);
+        switch (column) {
+            case 0:
+                return content.getTitle();
+            case 1:
+                return content.getStartTimeString();
+            case 2:
+                return content.getEndTimeString();
+            default:
+                return null;
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package Main.View;
 
+import Main.Model.Channel.ChannelContent;
+import Main.Model.Events.ViewRebuildEvent;
+import Main.Model.Metrics.Histogram;
+import Main.Model.Metrics.Metrics;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <h1>Handles the GUI part of the application</h1>
@@ -20,11 +25,16 @@ import java.util.Set;
  */
 public class View extends JFrame {
 
+    public static final int popupImageSize = 300;
+    private static final Histogram tableLoadSeconds = Metrics.getDefault()
+            .histogram("radio_table_load_seconds",
+                    "Time to load episodes into the table on the EDT.");
+
     private JMenu menu;
     private Map<String, JMenu> menuCategories;
-    private Map<String, JMenuItem> menuItems;
+    private Map<String, Map<String, JMenuItem>> menuItems;
     private JTable table;
-    private DefaultTableModel tableModel;
+    private ScheduleTableModel tableModel;
     private JButton refreshButton;
 
     /**
@@ -70,45 +80,37 @@ public class View extends JFrame {
     }
 
     /**
-     * Adds a channel to a category
+     * Shows the channels in each category.
      *
-     * @param category The category that the channel will be added to.
-     * @param channel The channel name that will be added to the category.
-     * @param actionListener A listener for the channel.
-     */
-    public void setMenuCategoryItem(String category, String channel,
-                                    ActionListener actionListener) {
-        SwingUtilities.invokeLater(() -> {
-            JMenuItem itemCategory = this.menuCategories.get(category);
-            JMenuItem newItem = new JMenuItem(channel);
-            this.menuItems.put(channel, newItem);
-            //adds actionListener to each item
-            newItem.addActionListener(actionListener);
-            itemCategory.add(newItem);
-        });
-    }
-
-    /**
-     * Removes all the channels from the channel categories
-     *
-     * <p>Removes all of the channels in the menu and it's listeners</p>
+     * <p>Only the difference to the channels shown before is applied:
+     *    channels that are gone are removed, new channels are added and
+     *    moved channels are moved. Channels that are unchanged keeps
+     *    their menu item. Everything is done in a single EDT task.</p>
      *
-     * @param channelNames A set of all the channel names.
-     * @param actionListener The listener.
+     * @param categoryItems The channels of each category in the order
+     *                      they are shown, as their action command mapped
+     *                      to the channel name. Missing categories are
+     *                      emptied.
+     * @param actionListener A listener for the channels.
      */
-    public void clearCategories(Set<String> channelNames,
-                                ActionListener actionListener) {
+    public void updateMenuCategories(
+            Map<String, Map<String, String>> categoryItems,
+            ActionListener actionListener) {
         SwingUtilities.invokeLater(() -> {
-            for (String categoryName : this.menuCategories.keySet()) {
-                this.menuCategories.get(categoryName).removeAll();
-            }
-            for (String channelName : channelNames) {
-                JMenuItem item = this.menuItems.get(channelName);
-                if (item != null) {
-                    item.removeActionListener(actionListener);
-                    this.menuItems.remove(item);
-                }
+            ViewRebuildEvent event = new ViewRebuildEvent();
+            event.begin();
+            for (Map.Entry<String, JMenu> category
+                    : this.menuCategories.entrySet()) {
+                Map<String, String> items = categoryItems.getOrDefault(
+                        category.getKey(), Map.of());
+                updateMenuCategory(category.getValue(),
+                        this.menuItems.computeIfAbsent(category.getKey(),
+                                key -> new HashMap<>()),
+                        items, actionListener);
+                event.items += items.size();
             }
+            event.component = "menu";
+            event.commit();
         });
     }
 
@@ -136,13 +138,21 @@ public class View extends JFrame {
     }
 
     /**
-     * Adds content to a row in the table.
+     * Shows episodes in the table, replacing the ones shown before.
      *
-     * @param rowContent String array containing content for each column
+     * @param channelContent The episodes, which must not be changed while
+     *                       they are shown.
      */
-    public void updateTableModel(String[] rowContent) {
+    public void setTableContent(List<ChannelContent> channelContent) {
         SwingUtilities.invokeLater(() -> {
-            this.tableModel.addRow(rowContent);
+            ViewRebuildEvent event = new ViewRebuildEvent();
+            event.begin();
+            long start = System.nanoTime();
+            this.tableModel.setChannelContent(channelContent);
+            tableLoadSeconds.observeNanos(System.nanoTime() - start);
+            event.component = "table";
+            event.items = channelContent.size();
+            event.commit();
         });
     }
 
@@ -158,11 +168,15 @@ public class View extends JFrame {
     /**
      * Displays channel content in a popup.
      *
-     * @param img An image.
+     * <p>The popup is opened directly with a placeholder, which is
+     *    replaced by the image when it has been loaded.</p>
+     *
+     * @param img An image that is still loading, completes with null if
+     *            there is no image.
      * @param title Title of the channel.
      * @param description Description of the channel.
      */
-    public void showContentPopup(ImageIcon img,
+    public void showContentPopup(CompletableFuture<ImageIcon> img,
                                  String title, String description) {
         SwingUtilities.invokeLater(() -> {
             JPanel mainPanel = new JPanel();
@@ -177,9 +191,16 @@ public class View extends JFrame {
             jTitle.setFont(new Font("Courier", Font.BOLD,12));
             JLabel jDesc = new JLabel(description);
 
-            if (img != null) {
-                labelImg.setIcon(img);
+            ImageIcon loadedImg = img.getNow(null);
+            if (loadedImg != null) {
+                labelImg.setIcon(loadedImg);
+                mainPanel.add(labelImg);
+            } else if (!img.isDone()) {
+                labelImg.setText("Loading image...");
+                labelImg.setHorizontalAlignment(SwingConstants.CENTER);
                 mainPanel.add(labelImg);
+                img.thenAccept(icon -> SwingUtilities.invokeLater(() ->
+                        setPopupImage(labelImg, icon)));
             }
             contentContainer.add(jTitle);
             contentContainer.add(jDesc);
@@ -190,24 +211,6 @@ public class View extends JFrame {
         });
     }
 
-    /**
-     * Removes the content in the table.
-     */
-    public void clearTableModel() {
-        SwingUtilities.invokeLater(() -> {
-            this.tableModel.setRowCount(0);
-        });
-    }
-
-    /**
-     * Removes mouse listener from the table.
-     *
-     * @param m A mouse adapter.
-     */
-    public void removeMouseListener(MouseAdapter m) {
-        this.table.removeMouseListener(m);
-    }
-
     /**
      * Shows the default look of the refresh button.
      */
@@ -232,6 +235,46 @@ public class View extends JFrame {
         });
     }
 
+    /*
+    Applies the difference between the items shown in a category and the
+    wanted items. The menu isn't touched if they are the same.
+     */
+    private void updateMenuCategory(JMenu category,
+                                    Map<String, JMenuItem> shownItems,
+                                    Map<String, String> items,
+                                    ActionListener actionListener) {
+        Iterator<Map.Entry<String, JMenuItem>> shown = shownItems.entrySet()
+                .iterator();
+        while (shown.hasNext()) {
+            Map.Entry<String, JMenuItem> item = shown.next();
+            if (!items.containsKey(item.getKey())) {
+                item.getValue().removeActionListener(actionListener);
+                category.remove(item.getValue());
+                shown.remove();
+            }
+        }
+        int position = 0;
+        for (Map.Entry<String, String> item : items.entrySet()) {
+            JMenuItem menuItem = shownItems.get(item.getKey());
+            if (menuItem == null) {
+                menuItem = new JMenuItem(item.getValue());
+                menuItem.setActionCommand(item.getKey());
+                menuItem.addActionListener(actionListener);
+                shownItems.put(item.getKey(), menuItem);
+                category.insert(menuItem, position);
+            } else {
+                if (!menuItem.getText().equals(item.getValue())) {
+                    menuItem.setText(item.getValue());
+                }
+                if (category.getItem(position) != menuItem) {
+                    category.remove(menuItem);
+                    category.insert(menuItem, position);
+                }
+            }
+            position++;
+        }
+    }
+
     /*
     Creates the top panels contents and returns the top panel.
      */
@@ -256,29 +299,11 @@ public class View extends JFrame {
     }
 
     /*
-    Creates table model with the names of each column,
-    and adds it to a scrollPane. The scrollPane is later returned.
+    Creates the table model of the episodes, and adds it to a scrollPane.
+    The scrollPane is later returned.
      */
     private JScrollPane setTable() {
-        this.tableModel = new DefaultTableModel() {
-            String[] columnNames = {
-                    "Episode", "Start Time (CET)", "End Time (CET)"
-            };
-            @Override
-            public int getColumnCount() {
-                return columnNames.length;
-            }
-
-            @Override
-            public boolean isCellEditable(int row, int col) {
-                return false;
-            }
-
-            @Override
-            public String getColumnName(int index) {
-                return columnNames[index];
-            }
-        };
+        this.tableModel = new ScheduleTableModel();
 
         this.table = new JTable(this.tableModel);
         this.table.setFillsViewportHeight(true);
@@ -286,6 +311,19 @@ public class View extends JFrame {
         return new JScrollPane(this.table);
     }
 
+    /*
+    Replaces the placeholder in an open popup with the loaded image,
+    and resizes the popup to fit it.
+     */
+    private void setPopupImage(JLabel labelImg, ImageIcon img) {
+        labelImg.setText(null);
+        labelImg.setIcon(img);
+        Window popup = SwingUtilities.getWindowAncestor(labelImg);
+        if (popup != null) {
+            popup.pack();
+        }
+    }
+
     /*
     Enables or disables the refresh button depending on what the parameter says.
      */
@@ -0,0 +1,53 @@
+package Main.Controller;
+
+import Main.Model.Channel.ChannelContainer;
+import Main.Model.ChannelUpdate;
+import Main.Model.Model;
+import Main.Model.RefreshCoordinator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import javax.swing.SwingWorker;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Makes sure that a cancelled refresh isn't reported as an error by the
+ * worker that waits on it.
+ */
+class ControllerTest {
+
+    @Test
+    void cancelledRefreshIsNotAnError() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        RefreshCoordinator coordinator = new RefreshCoordinator(new Model() {
+            @Override
+            public ChannelContainer run(String[] categories,
+                                        Consumer<ChannelUpdate> listener) {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) { }
+                return new ChannelContainer();
+            }
+        });
+        // waits on the refresh in the same way as the controller's worker
+        SwingWorker<ChannelContainer, Void> worker = new SwingWorker<>() {
+            @Override
+            protected ChannelContainer doInBackground() throws Exception {
+                return coordinator.refresh(null).get();
+            }
+        };
+        worker.execute();
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        coordinator.cancelRefresh();
+
+        ExecutionException e = Assertions.assertThrows(
+                ExecutionException.class,
+                () -> worker.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(Controller.isCancellation(e));
+        Assertions.assertFalse(Controller.isCancellation(
+                new ExecutionException(new IllegalStateException())));
+    }
+}
@@ -0,0 +1,45 @@
+package Main.Model.Channel;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Makes sure that a frozen container and everything in it can't change.
+ */
+class ChannelContainerTest {
+
+    @Test
+    void freeze() {
+        ChannelContent content = new ChannelContent();
+        Channel channel = new Channel();
+        channel.setChannelName("P1");
+        channel.setChannelId(132);
+        channel.addChannelContent(content);
+        ChannelHolder holder = new ChannelHolder();
+        holder.addChannel(channel);
+        Map<String, ChannelHolder> sortedChannels = new HashMap<>();
+        sortedChannels.put("P1", holder);
+        ChannelContainer container = new ChannelContainer();
+        container.setSortedChannels(sortedChannels);
+        container.freeze();
+
+        Assertions.assertSame(channel, container.getChannelById(132));
+        Assertions.assertNull(container.getChannelById(163));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> container.setErrorMessage("error"));
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> container.getSortedChannels().put("P2", holder));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> holder.addChannel(new Channel()));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> channel.setChannelName("P2"));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> channel.addChannelContent(new ChannelContent()));
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> channel.getChannelContent().clear());
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> content.setTitle("title"));
+    }
+}
@@ -0,0 +1,103 @@
+package Main.Model.Channel;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Makes sure that the index finds the same episodes as a linear scan.
+ */
+class ChannelContentIndexTest {
+
+    @Test
+    void getContentInRange() {
+        Channel channel = createChannel(new long[][]{
+                {300, 400}, {0, 100}, {100, 300}, {50, 500}, {400, 450}});
+
+        Assertions.assertEquals(List.of(0L, 50L, 100L),
+                startTimes(channel.getChannelContentByTimeRange(60, 150)));
+        Assertions.assertEquals(List.of(50L, 300L, 400L),
+                startTimes(channel.getChannelContentByTimeRange(350, 1000)));
+        Assertions.assertTrue(channel.getChannelContentByTimeRange(
+                500, 1000).isEmpty());
+    }
+
+    @Test
+    void getContentAt() {
+        Channel channel = createChannel(new long[][]{
+                {0, 100}, {100, 200}, {300, 400}});
+
+        Assertions.assertEquals(0L, channel.getChannelContentAt(0)
+                .getStartTime());
+        Assertions.assertEquals(100L, channel.getChannelContentAt(100)
+                .getStartTime());
+        Assertions.assertNull(channel.getChannelContentAt(250));
+        Assertions.assertNull(channel.getChannelContentAt(400));
+    }
+
+    @Test
+    void addedContentIsIndexed() {
+        Channel channel = createChannel(new long[][]{{0, 100}});
+        Assertions.assertNull(channel.getChannelContentAt(150));
+
+        ChannelContent content = new ChannelContent();
+        content.setStartTime(100);
+        content.setEndTime(200);
+        channel.addChannelContent(content);
+        Assertions.assertSame(content, channel.getChannelContentAt(150));
+    }
+
+    @Test
+    void longEpisodeOverlapsShortOnes() {
+        Random random = new Random(1);
+        long[][] times = new long[500][];
+        times[0] = new long[]{0, 100_000};
+        for (int i = 1; i < times.length; i++) {
+            long start = i * 200L;
+            times[i] = new long[]{start, start + 1 + random.nextInt(400)};
+        }
+        Channel channel = createChannel(times);
+
+        for (int i = 0; i < 200; i++) {
+            long from = random.nextInt(110_000);
+            long to = from + random.nextInt(1000);
+            List<Long> expected = new ArrayList<>();
+            Long at = null;
+            for (long[] time : times) {
+                if (time[1] > from && time[0] < to) {
+                    expected.add(time[0]);
+                }
+                if (time[0] <= from && time[1] > from) {
+                    at = time[0];
+                }
+            }
+            Assertions.assertEquals(expected, startTimes(
+                    channel.getChannelContentByTimeRange(from, to)));
+            ChannelContent content = channel.getChannelContentAt(from);
+            Assertions.assertEquals(at,
+                    content == null ? null : content.getStartTime());
+        }
+    }
+
+    private Channel createChannel(long[][] times) {
+        Channel channel = new Channel();
+        for (long[] time : times) {
+            ChannelContent content = new ChannelContent();
+            content.setStartTime(time[0]);
+            content.setEndTime(time[1]);
+            channel.addChannelContent(content);
+        }
+        return channel;
+    }
+
+    private List<Long> startTimes(List<ChannelContent> channelContent) {
+        List<Long> startTimes = new ArrayList<>();
+        for (ChannelContent content : channelContent) {
+            startTimes.add(content.getStartTime());
+        }
+        return startTimes;
+    }
+}
@@ -0,0 +1,35 @@
+package Main.Model.Channel;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Makes sure that the episode times are displayed in Swedish time.
+ */
+class ChannelContentTest {
+
+    @Test
+    void winterTime() {
+        ChannelContent content = new ChannelContent();
+        // 2021-12-25T23:00:00Z
+        content.setStartTime(1640473200L);
+        Assertions.assertEquals("2021-12-26 | 00:00",
+                content.getStartTimeString());
+    }
+
+    @Test
+    void summerTime() {
+        ChannelContent content = new ChannelContent();
+        // 2022-07-01T10:00:00Z
+        content.setEndTime(1656669600L);
+        Assertions.assertEquals("2022-07-01 | 12:00",
+                content.getEndTimeString());
+    }
+
+    @Test
+    void unknownTime() {
+        ChannelContent content = new ChannelContent();
+        Assertions.assertNull(content.getStartTimeString());
+        Assertions.assertNull(content.getEndTimeString());
+    }
+}
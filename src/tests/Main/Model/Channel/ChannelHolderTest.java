@@ -0,0 +1,41 @@
+package Main.Model.Channel;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Makes sure that the channels can be looked up by name and id.
+ */
+class ChannelHolderTest {
+
+    @Test
+    void lookupByNameAndId() {
+        ChannelHolder holder = new ChannelHolder();
+        holder.addChannel(channel("P1", 132));
+        holder.addChannel(channel("P2", 163));
+        Assertions.assertEquals(163,
+                holder.getChannelByName("P2").getChannelId());
+        Assertions.assertEquals("P1",
+                holder.getChannelById(132).getChannelName());
+        Assertions.assertNull(holder.getChannelByName("P3"));
+        Assertions.assertNull(holder.getChannelById(164));
+    }
+
+    @Test
+    void firstAddedIsFound() {
+        ChannelHolder holder = new ChannelHolder();
+        Channel first = channel("P1", 132);
+        holder.addChannel(first);
+        holder.addChannel(channel("P1", 132));
+        Assertions.assertSame(first, holder.getChannelByName("P1"));
+        Assertions.assertSame(first, holder.getChannelById(132));
+        Assertions.assertEquals(2, holder.getChannels().size());
+    }
+
+    private Channel channel(String name, int id) {
+        Channel channel = new Channel();
+        channel.setChannelName(name);
+        channel.setChannelId(id);
+        return channel;
+    }
+}
@@ -0,0 +1,115 @@
+package Main.Model.Export;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContainer;
+import Main.Model.Channel.ChannelContent;
+import Main.Model.Channel.ChannelHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Makes sure that responses are serialized once per snapshot, and that
+ * time ranges and unknown channels are handled.
+ */
+class ScheduleResponsesTest {
+
+    // 2021-12-25T23:00:00Z
+    static final long start = 1640473200L;
+
+    AtomicReference<ChannelContainer> snapshot = new AtomicReference<>();
+    ScheduleResponses responses = new ScheduleResponses(snapshot::get,
+            new String[]{"P1", "P2"});
+
+    @BeforeEach
+    void init() {
+        snapshot.set(createContainer("Ekot"));
+    }
+
+    @Test
+    void noSnapshot() {
+        snapshot.set(null);
+        Assertions.assertFalse(responses.hasSnapshot());
+        Assertions.assertEquals("[]", string(responses.getChannels(null)));
+    }
+
+    @Test
+    void channels() {
+        Assertions.assertEquals("[{\"id\":132,\"name\":\"P1\","
+                + "\"category\":\"P1\",\"channelType\":null,"
+                + "\"tagline\":null,\"color\":null,\"imageUrl\":null,"
+                + "\"siteUrl\":null}]", string(responses.getChannels(null)));
+        Assertions.assertEquals("[]", string(responses.getChannels("P2")));
+    }
+
+    @Test
+    void schedule() {
+        Assertions.assertEquals("{\"channelId\":132,\"from\":"
+                + "\"2021-12-25T23:30:00Z\",\"to\":\"2021-12-26T00:00:00Z\","
+                + "\"episodes\":[]}", string(responses.getSchedule(132,
+                start + 1800, start + 3600, 0)));
+        Assertions.assertTrue(string(responses.getSchedule(132, null, null,
+                start)).contains("\"title\":\"Ekot\""));
+    }
+
+    @Test
+    void onlyDefaultRangeIsCached() {
+        Assertions.assertSame(responses.getSchedule(132, null, null, start),
+                responses.getSchedule(132, null, null, start + 30));
+        Assertions.assertNotSame(responses.getSchedule(132, start,
+                start + 3600, 0), responses.getSchedule(132, start,
+                start + 3600, 0));
+    }
+
+    @Test
+    void invalidRange() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> responses.getSchedule(132, start, start - 1, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> responses.getSchedule(132, 0L, 99999999999L, 0));
+    }
+
+    @Test
+    void unknownChannel() {
+        Assertions.assertNull(responses.getSchedule(1, null, null, start));
+    }
+
+    @Test
+    void cachedPerSnapshot() {
+        byte[] first = responses.getNowPlaying(start + 10);
+        Assertions.assertSame(first, responses.getNowPlaying(start + 50));
+        Assertions.assertTrue(string(first).contains("\"title\":\"Ekot\""));
+
+        snapshot.set(createContainer("Studio Ett"));
+        Assertions.assertTrue(string(responses.getNowPlaying(start + 10))
+                .contains("\"title\":\"Studio Ett\""));
+    }
+
+    ChannelContainer createContainer(String title) {
+        ChannelContent content = new ChannelContent();
+        content.setEpisodeID("1");
+        content.setTitle(title);
+        content.setStartTime(start);
+        content.setEndTime(start + 1800);
+        Channel channel = new Channel();
+        channel.setChannelName("P1");
+        channel.setChannelId(132);
+        channel.addChannelContent(content);
+        ChannelHolder holder = new ChannelHolder();
+        holder.addChannel(channel);
+        Map<String, ChannelHolder> sortedChannels = new HashMap<>();
+        sortedChannels.put("P1", holder);
+        ChannelContainer container = new ChannelContainer();
+        container.setSortedChannels(sortedChannels);
+        container.freeze();
+        return container;
+    }
+
+    String string(byte[] response) {
+        return new String(response, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,72 @@
+package Main.Model.Export;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContainer;
+import Main.Model.Channel.ChannelContent;
+import Main.Model.Channel.ChannelHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Makes sure that episodes are written as escaped JSON Lines and CSV.
+ */
+class ScheduleWriterTest {
+
+    ChannelContainer channelContainer = new ChannelContainer();
+
+    @BeforeEach
+    void init() {
+        ChannelContent content = new ChannelContent();
+        content.setEpisodeID("1");
+        content.setTitle("Ekot, \"nyheter\"");
+        content.setDescription("rad 1\nrad 2");
+        // 2021-12-25T23:00:00Z
+        content.setStartTime(1640473200L);
+        Channel channel = new Channel();
+        channel.setChannelName("P1");
+        channel.setChannelId(132);
+        channel.addChannelContent(content);
+        ChannelHolder holder = new ChannelHolder();
+        holder.addChannel(channel);
+        Map<String, ChannelHolder> sortedChannels = new HashMap<>();
+        sortedChannels.put("P1", holder);
+        channelContainer.setSortedChannels(sortedChannels);
+    }
+
+    @Test
+    void jsonLines() throws Exception {
+        StringWriter out = new StringWriter();
+        int episodes = new ScheduleWriter(out, ExportFormat.JSONL)
+                .write(channelContainer, new String[]{"P1", "P2"});
+        Assertions.assertEquals(1, episodes);
+        Assertions.assertEquals("{\"category\":\"P1\",\"channelId\":132,"
+                + "\"channelName\":\"P1\",\"episodeId\":\"1\","
+                + "\"title\":\"Ekot, \\\"nyheter\\\"\","
+                + "\"description\":\"rad 1\\nrad 2\","
+                + "\"startTime\":\"2021-12-25T23:00:00Z\",\"endTime\":null,"
+                + "\"imageUrl\":null}\n", out.toString());
+    }
+
+    @Test
+    void csv() throws Exception {
+        StringWriter out = new StringWriter();
+        new ScheduleWriter(out, ExportFormat.CSV)
+                .write(channelContainer, new String[]{"P1"});
+        Assertions.assertEquals("category,channelId,channelName,episodeId,"
+                + "title,description,startTime,endTime,imageUrl\r\n"
+                + "P1,132,P1,1,\"Ekot, \"\"nyheter\"\"\",\"rad 1\nrad 2\","
+                + "2021-12-25T23:00:00Z,,\r\n", out.toString());
+    }
+
+    @Test
+    void skipsOtherCategories() throws Exception {
+        StringWriter out = new StringWriter();
+        Assertions.assertEquals(0, new ScheduleWriter(out, ExportFormat.JSONL)
+                .write(channelContainer, new String[]{"P2"}));
+        Assertions.assertEquals("", out.toString());
+    }
+}
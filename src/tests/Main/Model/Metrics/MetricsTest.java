@@ -0,0 +1,62 @@
+package Main.Model.Metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Makes sure that metrics are shared by name and labels, and that they
+ * are written in the Prometheus text format.
+ */
+class MetricsTest {
+
+    Metrics metrics = new Metrics();
+
+    @Test
+    void sharedByNameAndLabels() {
+        metrics.counter("errors_total", "Errors.", "endpoint", "/a")
+                .increment();
+        metrics.counter("errors_total", "Errors.", "endpoint", "/a").add(2);
+        metrics.counter("errors_total", "Errors.", "endpoint", "/b")
+                .increment();
+        Assertions.assertEquals(3, metrics.getCounters()
+                .get("errors_total{endpoint=\"/a\"}"));
+        Assertions.assertEquals(1, metrics.getCounters()
+                .get("errors_total{endpoint=\"/b\"}"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> metrics.histogram("errors_total", "Errors."));
+    }
+
+    @Test
+    void percentile() {
+        Histogram histogram = new Histogram(new double[]{1, 2, 4});
+        for (int i = 0; i < 50; i++) {
+            histogram.observe(0.5);
+            histogram.observe(3);
+        }
+        Assertions.assertEquals(100, histogram.getCount());
+        Assertions.assertEquals(1, histogram.getPercentile(50), 1e-9);
+        Assertions.assertEquals(3.96, histogram.getPercentile(99), 1e-9);
+        Assertions.assertTrue(Double.isNaN(new Histogram()
+                .getPercentile(50)));
+    }
+
+    @Test
+    void prometheusText() {
+        metrics.histogram("fetch_seconds", "Fetch time.", "channel",
+                "P1 \"Ekot\"").observe(0.003);
+        metrics.counter("bytes_total", "Bytes.").add(10);
+        String text = metrics.getPrometheusText();
+        Assertions.assertTrue(text.startsWith("# HELP bytes_total Bytes.\n"
+                + "# TYPE bytes_total counter\nbytes_total 10\n"
+                + "# HELP fetch_seconds Fetch time.\n"
+                + "# TYPE fetch_seconds histogram\n"));
+        Assertions.assertTrue(text.contains("fetch_seconds_bucket{channel="
+                + "\"P1 \\\"Ekot\\\"\",le=\"0.0025\"} 0\n"
+                + "fetch_seconds_bucket{channel=\"P1 \\\"Ekot\\\"\","
+                + "le=\"0.005\"} 1\n"));
+        Assertions.assertTrue(text.contains("fetch_seconds_bucket{channel="
+                + "\"P1 \\\"Ekot\\\"\",le=\"+Inf\"} 1\n"));
+        Assertions.assertTrue(text.endsWith("fetch_seconds_count{channel="
+                + "\"P1 \\\"Ekot\\\"\"} 1\n"));
+    }
+}
@@ -0,0 +1,564 @@
+package Main.Model.Parser;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local stand-in for the SverigesRadio API, so that the network
+ * behaviour of the application can be tested offline and reproducibly.
+ *
+ * Serves /api/v2/channels and /api/v2/scheduledepisodes?channelid=...
+ * in XML or JSON (format=json), either from the fixtures in
+ * src/tests/Resources or from a ScheduleGenerator. The latency, bandwidth,
+ * error rate and ETag behaviour can be changed while it runs.
+ *
+ * Point the application at it with -Dradio.api.url=getApiUrl(). It can
+ * also run standalone, see main.
+ */
+public class FakeApiServer implements AutoCloseable {
+
+    /**
+     * How the server uses ETags.
+     */
+    public enum EtagMode {
+        /** No ETag header, every request gets the full body. */
+        NONE,
+        /** The ETag is a hash of the body, If-None-Match gets a 304. */
+        STABLE,
+        /** Every response has a new ETag, so nothing is ever a 304. */
+        CHANGING
+    }
+
+    /**
+     * Picks how long a request waits before it's answered.
+     */
+    public interface Latency {
+
+        /**
+         * Picks a latency.
+         *
+         * @param random The random generator of the request.
+         * @return The latency in milliseconds.
+         */
+        long nextMillis(Random random);
+
+        /**
+         * The same latency for every request.
+         *
+         * @param millis The latency in milliseconds.
+         * @return The distribution.
+         */
+        static Latency fixed(long millis) {
+            return random -> millis;
+        }
+
+        /**
+         * A latency uniformly between min and max.
+         *
+         * @param minMillis The smallest latency in milliseconds.
+         * @param maxMillis The largest latency in milliseconds.
+         * @return The distribution.
+         */
+        static Latency uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble()
+                    * (maxMillis - minMillis));
+        }
+
+        /**
+         * A log-normal latency, which has a long tail like most real
+         * services.
+         *
+         * @param medianMillis The median latency in milliseconds.
+         * @param sigma The spread, eg 0.5 gives a p99 of about 3.2 times
+         *              the median.
+         * @return The distribution.
+         */
+        static Latency logNormal(double medianMillis, double sigma) {
+            return random -> Math.round(medianMillis
+                    * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    private static final String apiPath = "/api/v2";
+    private static final String resources = "src/tests/Resources/";
+    private static final Pattern xmlScheduleUrl = Pattern.compile(
+            "(<channel id=\"(\\d+)\".*?<scheduleurl>).*?(</scheduleurl>)",
+            Pattern.DOTALL);
+    private static final Pattern jsonScheduleUrl = Pattern.compile(
+            "(\"scheduleurl\"\\s*:\\s*\")(\\d+)(\")");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long seed;
+    private final Map<String, AtomicLong> urlRequests;
+    private final ScheduleGenerator generator;
+    private final Map<Integer, Latency> channelLatencies;
+    private final AtomicLong requests;
+    private final AtomicLong notModified;
+    private final AtomicLong errors;
+    private final AtomicLong etagCounter;
+    private volatile Latency latency;
+    private volatile long bytesPerSecond;
+    private volatile double errorRate;
+    private volatile EtagMode etagMode;
+    private volatile int maxAgeSeconds;
+    private volatile boolean gzip;
+
+    /**
+     * Starts a server that serves the fixtures on a free port.
+     *
+     * @throws IOException If the server couldn't be started.
+     */
+    public FakeApiServer() throws IOException {
+        this(0, null, 1);
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param port The port on localhost, 0 for any free port.
+     * @param generator Generates the channels and schedules, or null to
+     *                  serve the fixtures.
+     * @param seed Decides the latencies and errors. Each request draws
+     *             them from it's own generator, seeded by the seed, the
+     *             url and how many times the url has been requested. So
+     *             the same requests get the same latencies and errors
+     *             whatever order the handler threads runs in.
+     * @throws IOException If the server couldn't be started.
+     */
+    public FakeApiServer(int port, ScheduleGenerator generator, long seed)
+            throws IOException {
+        this.generator = generator;
+        this.seed = seed;
+        this.urlRequests = new ConcurrentHashMap<>();
+        this.channelLatencies = new ConcurrentHashMap<>();
+        this.requests = new AtomicLong();
+        this.notModified = new AtomicLong();
+        this.errors = new AtomicLong();
+        this.etagCounter = new AtomicLong();
+        this.latency = Latency.fixed(0);
+        this.etagMode = EtagMode.STABLE;
+        this.gzip = true;
+        this.server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-api");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.createContext(apiPath + "/", exchange -> {
+            try (exchange) {
+                handle(exchange);
+            }
+        });
+        this.server.start();
+    }
+
+    /**
+     * Retrieves the base url, to be used as radio.api.url.
+     *
+     * @return Eg http://127.0.0.1:8081/api/v2
+     */
+    public String getApiUrl() {
+        return "http://" + this.server.getAddress().getHostString() + ":"
+                + this.server.getAddress().getPort() + apiPath;
+    }
+
+    /**
+     * Sets the latency of every request.
+     *
+     * @param latency The latency distribution.
+     */
+    public void setLatency(Latency latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Sets the latency of the schedule requests of a single channel,
+     * eg to make one channel slow.
+     *
+     * @param channelId The id of the channel.
+     * @param latency The latency distribution, or null to use the latency
+     *                of every request.
+     */
+    public void setChannelLatency(int channelId, Latency latency) {
+        if (latency == null) {
+            this.channelLatencies.remove(channelId);
+        } else {
+            this.channelLatencies.put(channelId, latency);
+        }
+    }
+
+    /**
+     * Limits how fast the bodies are sent.
+     *
+     * @param bytesPerSecond The bandwidth of each response, 0 for no
+     *                       limit.
+     */
+    public void setBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Sets how often a request fails with 503 Service Unavailable.
+     *
+     * @param errorRate The probability, between 0 and 1.
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Sets how ETags are used.
+     *
+     * @param etagMode The mode, STABLE by default.
+     */
+    public void setEtagMode(EtagMode etagMode) {
+        this.etagMode = etagMode;
+    }
+
+    /**
+     * Sets the max-age of the Cache-Control header.
+     *
+     * @param maxAgeSeconds The max-age, 0 for no Cache-Control header.
+     */
+    public void setMaxAge(int maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    /**
+     * Sets if the bodies are gzip compressed when the client asks for it.
+     *
+     * @param gzip True by default.
+     */
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Stops the server, without waiting for requests in progress.
+     */
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Runs the server until it's killed.
+     *
+     * <p>Arguments: [--port 8081] [--channels n] [--episodes-per-day n]
+     *    [--seed n] [--latency-ms median] [--latency-sigma s]
+     *    [--bandwidth-kbps n] [--error-rate p] [--etag none|stable|changing]
+     *    [--max-age seconds]. The fixtures are served unless --channels is
+     *    given.</p>
+     *
+     * @param args The arguments.
+     * @throws IOException If the server couldn't be started.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i], args[i + 1]);
+        }
+        long seed = Long.parseLong(options.getOrDefault("--seed", "1"));
+        ScheduleGenerator generator = options.containsKey("--channels")
+                ? new ScheduleGenerator(seed,
+                        Integer.parseInt(options.get("--channels")),
+                        Integer.parseInt(options.getOrDefault(
+                                "--episodes-per-day", "48")))
+                : null;
+        FakeApiServer server = new FakeApiServer(Integer.parseInt(
+                options.getOrDefault("--port", "8081")), generator, seed);
+        double median = Double.parseDouble(options.getOrDefault(
+                "--latency-ms", "0"));
+        double sigma = Double.parseDouble(options.getOrDefault(
+                "--latency-sigma", "0"));
+        server.setLatency(Latency.logNormal(median, sigma));
+        server.setBandwidth(Long.parseLong(options.getOrDefault(
+                "--bandwidth-kbps", "0")) * 1024);
+        server.setErrorRate(Double.parseDouble(options.getOrDefault(
+                "--error-rate", "0")));
+        server.setEtagMode(EtagMode.valueOf(options.getOrDefault(
+                "--etag", "stable").toUpperCase()));
+        server.setMaxAge(Integer.parseInt(options.getOrDefault(
+                "--max-age", "0")));
+        System.out.println("Serving a fake API, run the application with "
+                + "-Dradio.api.url=" + server.getApiUrl());
+    }
+
+    /*
+    Answers a request after the latency, with an error, a 304 or the
+    document.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        Map<String, String> query = getQuery(exchange);
+        String path = exchange.getRequestURI().getPath()
+                .substring(apiPath.length());
+        boolean json = "json".equals(query.get("format"));
+        Integer channelId = parseInt(query.get("channelid"));
+
+        Random random = createRandom(exchange);
+        Latency requestLatency = channelId == null ? this.latency
+                : this.channelLatencies.getOrDefault(channelId, this.latency);
+        try {
+            Thread.sleep(Math.max(0, requestLatency.nextMillis(random)));
+        } catch (InterruptedException e) {
+            return;
+        }
+        if (random.nextDouble() < this.errorRate) {
+            this.errors.incrementAndGet();
+            send(exchange, 503, null, null);
+            return;
+        }
+
+        byte[] body;
+        if (path.equals("/channels")) {
+            body = getChannels(json);
+        } else if (path.equals("/scheduledepisodes") && channelId != null) {
+            body = getSchedule(channelId, parseDate(query.get("date")), json);
+        } else {
+            body = null;
+        }
+        if (body == null) {
+            send(exchange, 404, null, null);
+            return;
+        }
+
+        String etag = getEtag(body);
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders()
+                    .getFirst("If-None-Match"))) {
+                this.notModified.incrementAndGet();
+                send(exchange, 304, null, null);
+                return;
+            }
+        }
+        if (this.maxAgeSeconds > 0) {
+            exchange.getResponseHeaders().set("Cache-Control",
+                    "max-age=" + this.maxAgeSeconds);
+        }
+        send(exchange, 200, body, json ? "application/json; charset=utf-8"
+                : "text/xml; charset=utf-8");
+    }
+
+    /*
+    Creates the random generator of a request from the seed, the url and
+    the number of earlier requests of the url.
+     */
+    private Random createRandom(HttpExchange exchange) {
+        String url = exchange.getRequestURI().getRawPath() + "?"
+                + exchange.getRequestURI().getRawQuery();
+        long attempt = this.urlRequests.computeIfAbsent(url,
+                key -> new AtomicLong()).getAndIncrement();
+        return new Random(this.seed * 1_000_003L + url.hashCode() * 31L
+                + attempt);
+    }
+
+    /*
+    Retrieves the channel list, with schedule urls pointing to this server.
+     */
+    private byte[] getChannels(boolean json) {
+        IntFunction<String> scheduleUrl = id -> getApiUrl()
+                + "/scheduledepisodes?channelid=" + id;
+        if (this.generator != null) {
+            return this.generator.channels(json, scheduleUrl);
+        }
+        String document = readFixture(json ? "channel_complete.json"
+                : "IntegratedTest/main_channels.xml");
+        Matcher matcher = (json ? jsonScheduleUrl : xmlScheduleUrl)
+                .matcher(document);
+        StringBuilder rewritten = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(rewritten, Matcher.quoteReplacement(
+                    matcher.group(1) + scheduleUrl.apply(Integer.parseInt(
+                            matcher.group(2))) + matcher.group(3)));
+        }
+        matcher.appendTail(rewritten);
+        return rewritten.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /*
+    Retrieves the schedule of a channel, or null if the channel doesn't
+    exist. The fixtures are the same for every date.
+     */
+    private byte[] getSchedule(int channelId, LocalDate date, boolean json) {
+        if (this.generator != null) {
+            return this.generator.hasChannel(channelId)
+                    ? this.generator.schedule(channelId, date, json)
+                    : null;
+        }
+        if (channelId != 132 && channelId != 163) {
+            return null;
+        }
+        if (json) {
+            return readFixture("channel_content_complete.json")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+        return readFixture(channelId == 132 ? "IntegratedTest/p1.xml"
+                : "IntegratedTest/p2.xml").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /*
+    Creates the ETag of a response, or null if ETags aren't used.
+     */
+    private String getEtag(byte[] body) {
+        switch (this.etagMode) {
+            case STABLE:
+                try {
+                    byte[] digest = MessageDigest.getInstance("SHA-256")
+                            .digest(body);
+                    StringBuilder etag = new StringBuilder("\"");
+                    for (int i = 0; i < 8; i++) {
+                        etag.append(String.format("%02x", digest[i]));
+                    }
+                    return etag.append('"').toString();
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+            case CHANGING:
+                return "\"" + this.etagCounter.incrementAndGet() + "\"";
+            default:
+                return null;
+        }
+    }
+
+    /*
+    Sends a response, gzip compressed if the client asks for it, and no
+    faster than the bandwidth.
+     */
+    private void send(HttpExchange exchange, int status, byte[] body,
+                      String contentType) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        String acceptEncoding = exchange.getRequestHeaders()
+                .getFirst("Accept-Encoding");
+        if (this.gzip && acceptEncoding != null
+                && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            long bandwidth = this.bytesPerSecond;
+            int chunk = bandwidth > 0
+                    ? (int) Math.max(1, Math.min(8192, bandwidth / 10))
+                    : body.length;
+            for (int offset = 0; offset < body.length; offset += chunk) {
+                int length = Math.min(chunk, body.length - offset);
+                out.write(body, offset, length);
+                if (bandwidth > 0) {
+                    out.flush();
+                    Thread.sleep(length * 1000L / bandwidth);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    /*
+    Reads a fixture from src/tests/Resources.
+     */
+    private static String readFixture(String name) {
+        try {
+            Path path = Paths.get(resources + name);
+            return Files.readString(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    Decodes the query parameters of a request.
+     */
+    private static Map<String, String> getQuery(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0) {
+                    query.put(parameter.substring(0, equals),
+                            URLDecoder.decode(parameter.substring(
+                                    equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return query;
+    }
+
+    /*
+    Parses an integer parameter, or returns null if it's missing or
+    malformed.
+     */
+    private static Integer parseInt(String value) {
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /*
+    Parses the date parameter, or returns the current date in the time
+    zone of the API.
+     */
+    private static LocalDate parseDate(String value) {
+        try {
+            return value == null ? LocalDate.now(ParseTools.apiZone)
+                    : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            return LocalDate.now(ParseTools.apiZone);
+        }
+    }
+}
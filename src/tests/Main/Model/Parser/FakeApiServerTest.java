@@ -0,0 +1,158 @@
+package Main.Model.Parser;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Makes sure that the parser works against the fake API over HTTP, and
+ * that the fake API's ETags and errors reach the transports.
+ */
+class FakeApiServerTest {
+
+    FakeApiServer server;
+    Transport previousTransport = ParseTools.getTransport();
+
+    @BeforeEach
+    void init() throws Exception {
+        server = new FakeApiServer();
+        System.setProperty("radio.api.url", server.getApiUrl());
+        ParseTools.setTransport(new HttpTransport(Duration.ofSeconds(5)));
+    }
+
+    @AfterEach
+    void close() {
+        server.close();
+        System.clearProperty("radio.api.url");
+        ParseTools.setTransport(previousTransport);
+    }
+
+    @Test
+    void parsesFixtures() throws Exception {
+        ChannelHolder holder = new Parser(0, 0).getChannels();
+        Assertions.assertEquals(2, holder.getChannels().size());
+        for (Channel channel : holder.getChannels()) {
+            Assertions.assertFalse(channel.getChannelContent().isEmpty());
+        }
+        Assertions.assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    void parsesGeneratedSchedules() throws Exception {
+        server.close();
+        ScheduleGenerator generator = new ScheduleGenerator(7, 20, 24);
+        server = new FakeApiServer(0, generator, 1);
+        System.setProperty("radio.api.url", server.getApiUrl());
+
+        ChannelHolder holder = new Parser(1, 0).getChannels();
+        Assertions.assertEquals(20, holder.getChannels().size());
+        Assertions.assertEquals(48, holder.getChannelById(
+                generator.getChannelId(3)).getChannelContent().size());
+    }
+
+    @Test
+    void notModified(@TempDir Path cache) throws Exception {
+        CachingTransport transport = new CachingTransport(cache,
+                Duration.ofSeconds(5));
+        String url = server.getApiUrl() + "/channels";
+        transport.getStream(url).close();
+        try (InputStream stream = transport.getStream(url)) {
+            Assertions.assertTrue(
+                    ((CachedResponseStream) stream).isNotModified());
+        }
+        Assertions.assertEquals(1, server.getNotModifiedCount());
+    }
+
+    @Test
+    void storesBodyWhileReading(@TempDir Path cache) throws Exception {
+        CachingTransport transport = new CachingTransport(cache,
+                Duration.ofSeconds(5));
+        String url = server.getApiUrl() + "/channels";
+        byte[] body;
+        try (InputStream stream = transport.getStream(url)) {
+            stream.readNBytes(16);
+            try (Stream<Path> files = Files.list(cache)) {
+                Assertions.assertEquals(0, files.filter(file -> file
+                        .toString().endsWith(".body")).count());
+            }
+            body = stream.readAllBytes();
+        }
+        try (InputStream stream = transport.getStream(url)) {
+            Assertions.assertTrue(
+                    ((CachedResponseStream) stream).isNotModified());
+            byte[] stored = stream.readAllBytes();
+            Assertions.assertArrayEquals(body, Arrays.copyOfRange(stored,
+                    16, stored.length));
+        }
+    }
+
+    @Test
+    void staleWhenUnreachable(@TempDir Path cache) throws Exception {
+        CachingTransport transport = new CachingTransport(cache,
+                Duration.ofSeconds(5));
+        String url = server.getApiUrl() + "/channels";
+        transport.getStream(url).close();
+        server.close();
+        try (InputStream stream = transport.getStream(url)) {
+            Assertions.assertTrue(
+                    ((CachedResponseStream) stream).isStale());
+        }
+    }
+
+    @Test
+    void errors() {
+        server.setErrorRate(1);
+        HttpStatusException e = Assertions.assertThrows(
+                HttpStatusException.class, () -> ParseTools.getTransport()
+                        .getStream(server.getApiUrl() + "/channels"));
+        Assertions.assertEquals(503, e.getStatusCode());
+    }
+
+    @Test
+    void errorsDontDependOnRequestOrder() throws Exception {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            urls.add(server.getApiUrl() + "/channels?page=" + i);
+        }
+        server.setErrorRate(0.5);
+        List<Integer> inOrder = new ArrayList<>();
+        for (String url : urls) {
+            inOrder.add(statusCode(url));
+        }
+        server.close();
+
+        server = new FakeApiServer(0, null, 1);
+        server.setErrorRate(0.5);
+        Integer[] reversed = new Integer[urls.size()];
+        for (int i = urls.size() - 1; i >= 0; i--) {
+            reversed[i] = statusCode(urls.get(i).replaceFirst(
+                    "http://[^/]+/api/v2", server.getApiUrl()));
+        }
+        Assertions.assertEquals(inOrder, Arrays.asList(reversed));
+        Assertions.assertTrue(inOrder.contains(200));
+        Assertions.assertTrue(inOrder.contains(503));
+    }
+
+    /*
+    Requests an url from the fake API and returns the status code.
+     */
+    private int statusCode(String url) throws Exception {
+        try (InputStream stream = ParseTools.getTransport().getStream(url)) {
+            return 200;
+        } catch (HttpStatusException e) {
+            return e.getStatusCode();
+        }
+    }
+}
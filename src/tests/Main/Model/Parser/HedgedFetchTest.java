@@ -0,0 +1,209 @@
+package Main.Model.Parser;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes sure that slow requests are sent again, that requests give up at
+ * the deadline, and that schedules missing the refresh deadline keeps the
+ * previous episodes.
+ */
+class HedgedFetchTest {
+
+    Transport previousTransport = ParseTools.getTransport();
+    TimeZone previousTimeZone = TimeZone.getDefault();
+
+    @AfterEach
+    void close() {
+        ParseTools.setTransport(previousTransport);
+        TimeZone.setDefault(previousTimeZone);
+        System.clearProperty("radio.api.url");
+        System.clearProperty("radio.hedge.percentile");
+    }
+
+    @Test
+    void hedgedRequestWins() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        ParseTools.setTransport(url -> {
+            if (requests.incrementAndGet() == 1) {
+                sleep(10000);
+            }
+            return new ByteArrayInputStream(
+                    "fast".getBytes(StandardCharsets.UTF_8));
+        });
+        long start = System.nanoTime();
+        try (InputStream stream = new HedgedTools(50).getStream(
+                "http://localhost/api/v2/test", TimeUnit.SECONDS.toNanos(5))) {
+            Assertions.assertEquals("fast", new String(stream.readAllBytes(),
+                    StandardCharsets.UTF_8));
+        }
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertTrue(System.nanoTime() - start
+                < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void deadline() {
+        ParseTools.setTransport(url -> {
+            sleep(10000);
+            return new ByteArrayInputStream(new byte[0]);
+        });
+        long start = System.nanoTime();
+        Assertions.assertThrows(HttpTimeoutException.class,
+                () -> new HedgedTools(-1).getStream(
+                        "http://localhost/api/v2/test",
+                        TimeUnit.MILLISECONDS.toNanos(200)));
+        Assertions.assertTrue(System.nanoTime() - start
+                < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void bodyDeadline() throws Exception {
+        Thread caller = Thread.currentThread();
+        ParseTools.setTransport(url -> new InputStream() {
+            @Override
+            public int read() throws InterruptedIOException {
+                sleep(10000);
+                return -1;
+            }
+
+            @Override
+            public void close() {
+                caller.interrupt();
+            }
+        });
+        long start = System.nanoTime();
+        try (InputStream stream = new HedgedTools(-1).getStream(
+                "http://localhost/api/v2/test",
+                TimeUnit.MILLISECONDS.toNanos(200))) {
+            Assertions.assertThrows(HttpTimeoutException.class,
+                    stream::read);
+        } finally {
+            Thread.interrupted();
+        }
+        Assertions.assertTrue(System.nanoTime() - start
+                < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void streamsOnCallingThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        ParseTools.setTransport(url -> {
+            Assertions.assertSame(caller, Thread.currentThread());
+            return new ByteArrayInputStream(new byte[0]);
+        });
+        try (InputStream stream = new HedgedTools(-1).getStream(
+                "http://localhost/api/v2/test", Long.MAX_VALUE)) {
+            Assertions.assertFalse(stream instanceof ByteArrayInputStream);
+            Assertions.assertEquals(-1, stream.read());
+        }
+    }
+
+    @Test
+    void hedgeNeedsRoom() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        ParseTools.setTransport(url -> {
+            requests.incrementAndGet();
+            sleep(500);
+            return new ByteArrayInputStream(new byte[0]);
+        });
+        HedgedTools tools = new HedgedTools(50);
+        tools.setMaxRequests(1);
+        try (InputStream stream = tools.getStream(
+                "http://localhost/api/v2/test", TimeUnit.SECONDS.toNanos(5))) {
+            Assertions.assertEquals(-1, stream.read());
+        }
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    @Test
+    void keepsPreviousEpisodes() throws Exception {
+        keepsPreviousEpisodes("UTC");
+    }
+
+    @Test
+    void keepsPreviousEpisodesInOtherTimeZones() throws Exception {
+        keepsPreviousEpisodes("Europe/Stockholm");
+        keepsPreviousEpisodes("America/Los_Angeles");
+        keepsPreviousEpisodes("Asia/Tokyo");
+    }
+
+    /*
+    Refreshes with a slow channel while the JVM runs in a time zone, and
+    makes sure that all of it's previous episodes are kept.
+     */
+    private void keepsPreviousEpisodes(String timeZone) throws Exception {
+        TimeZone.setDefault(TimeZone.getTimeZone(timeZone));
+        ScheduleGenerator generator = new ScheduleGenerator(3, 5, 24);
+        try (FakeApiServer server = new FakeApiServer(0, generator, 1)) {
+            System.setProperty("radio.api.url", server.getApiUrl());
+            System.setProperty("radio.hedge.percentile", "0");
+            ParseTools.setTransport(new HttpTransport(Duration.ofSeconds(30)));
+            ChannelMetadataCache metadataCache = new ChannelMetadataCache();
+            ChannelHolder previous = new Parser(0, 0, metadataCache)
+                    .getChannels();
+            previous.freeze();
+
+            int slowId = generator.getChannelId(2);
+            server.setChannelLatency(slowId, FakeApiServer.Latency.fixed(5000));
+            Parser parser = new Parser(0, 0, metadataCache);
+            parser.channelParser.setRefreshBudgetMillis(500);
+            parser.setPreviousChannels(previous);
+            long start = System.nanoTime();
+            ChannelHolder holder = parser.getChannels();
+            Assertions.assertTrue(System.nanoTime() - start
+                    < TimeUnit.SECONDS.toNanos(3));
+
+            Assertions.assertEquals(5, holder.getChannels().size());
+            Channel slow = holder.getChannelById(slowId);
+            Assertions.assertNull(slow.getChannelContentErrorMessage());
+            Assertions.assertEquals(24, slow.getChannelContent().size(),
+                    timeZone);
+            Assertions.assertEquals(previous.getChannelById(slowId)
+                    .getChannelContent(), slow.getChannelContent(),
+                    timeZone);
+        }
+    }
+
+    /*
+    Sleeps like a slow API, and stops if the request is cancelled.
+     */
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Sends requests again after a fixed delay.
+     */
+    private static class HedgedTools extends ParseTools {
+
+        private final long hedgeDelayMillis;
+
+        HedgedTools(long hedgeDelayMillis) {
+            this.hedgeDelayMillis = hedgeDelayMillis;
+        }
+
+        @Override
+        protected long getHedgeDelayNanos(String url) {
+            return this.hedgeDelayMillis < 0 ? -1
+                    : TimeUnit.MILLISECONDS.toNanos(this.hedgeDelayMillis);
+        }
+    }
+}
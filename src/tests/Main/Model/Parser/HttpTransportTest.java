@@ -0,0 +1,67 @@
+package Main.Model.Parser;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes sure that a response body that stops arriving fails with a read
+ * timeout instead of blocking.
+ */
+class HttpTransportTest {
+
+    HttpServer server;
+    CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void init() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        // sends the start of a body, and then stalls
+        server.createContext("/stalled", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream body = exchange.getResponseBody();
+            body.write("<sr>".getBytes(StandardCharsets.UTF_8));
+            body.flush();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) { }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void close() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void stalledBodyTimesOut() throws Exception {
+        HttpTransport transport = new HttpTransport(Duration.ofSeconds(5),
+                Duration.ofMillis(300));
+        long start = System.nanoTime();
+        try (InputStream stream = transport.getStream("http://127.0.0.1:"
+                + server.getAddress().getPort() + "/stalled")) {
+            Assertions.assertThrows(SocketTimeoutException.class,
+                    stream::readAllBytes);
+        }
+        Assertions.assertTrue(System.nanoTime() - start
+                < TimeUnit.SECONDS.toNanos(5));
+        Assertions.assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
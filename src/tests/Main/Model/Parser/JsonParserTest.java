@@ -0,0 +1,90 @@
+package Main.Model.Parser;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.modelmbean.XMLParseException;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Makes sure that the JSON from the API is parsed into the same data as
+ * the corresponding XML.
+ */
+class JsonParserTest {
+
+    @Test
+    void parseChannels() throws XMLParseException, IOException {
+        ArrayList<Channel> xml = new ParseChannel(new FileInputStream(
+                "src/tests/Resources/channel_complete.xml"),
+                null, ParserEngine.DOM).getChannelMetadata();
+        ArrayList<Channel> json = new ParseChannel(new FileInputStream(
+                "src/tests/Resources/channel_complete.json"),
+                null, ParserEngine.JSON).getChannelMetadata();
+
+        Assertions.assertEquals(2, json.size());
+        for (int i = 0; i < xml.size(); i++) {
+            Assertions.assertEquals(xml.get(i).getChannelName(),
+                    json.get(i).getChannelName());
+            Assertions.assertEquals(xml.get(i).getChannelId(),
+                    json.get(i).getChannelId());
+            Assertions.assertEquals(xml.get(i).getImageURLString(),
+                    json.get(i).getImageURLString());
+            Assertions.assertEquals(xml.get(i).getColorCode(),
+                    json.get(i).getColorCode());
+            Assertions.assertEquals(xml.get(i).getChannelDescription(),
+                    json.get(i).getChannelDescription());
+            Assertions.assertEquals(xml.get(i).getSiteURLString(),
+                    json.get(i).getSiteURLString());
+            Assertions.assertEquals(xml.get(i).getScheduleURL(),
+                    json.get(i).getScheduleURL());
+            Assertions.assertEquals(xml.get(i).getChannelType(),
+                    json.get(i).getChannelType());
+        }
+    }
+
+    @Test
+    void parseChannelContent() throws XMLParseException, IOException {
+        Channel xml = new Channel();
+        Channel json = new Channel();
+        new ParseChannelContent(new FileInputStream(
+                "src/tests/Resources/channel_content_complete.xml"),
+                ParserEngine.DOM).parseChannelContent(xml);
+        new ParseChannelContent(new FileInputStream(
+                "src/tests/Resources/channel_content_complete.json"),
+                ParserEngine.JSON).parseChannelContent(json);
+
+        List<ChannelContent> xmlContent = xml.getChannelContent();
+        List<ChannelContent> jsonContent = json.getChannelContent();
+        Assertions.assertFalse(jsonContent.isEmpty());
+        Assertions.assertEquals(xmlContent.size(), jsonContent.size());
+        for (int i = 0; i < xmlContent.size(); i++) {
+            Assertions.assertEquals(xmlContent.get(i).getTitle(),
+                    jsonContent.get(i).getTitle());
+            Assertions.assertEquals(xmlContent.get(i).getEpisodeID(),
+                    jsonContent.get(i).getEpisodeID());
+            Assertions.assertEquals(xmlContent.get(i).getDescription(),
+                    jsonContent.get(i).getDescription());
+            Assertions.assertEquals(xmlContent.get(i).getStartTimeString(),
+                    jsonContent.get(i).getStartTimeString());
+            Assertions.assertEquals(xmlContent.get(i).getEndTimeString(),
+                    jsonContent.get(i).getEndTimeString());
+            Assertions.assertEquals(xmlContent.get(i).getImageURL(),
+                    jsonContent.get(i).getImageURL());
+        }
+    }
+
+    @Test
+    void malformedJson() {
+        Assertions.assertThrows(XMLParseException.class, () ->
+                new JsonParser().parseChannelContent(new ByteArrayInputStream(
+                        "{\"schedule\": [{\"title\": \"a\"".getBytes(
+                                StandardCharsets.UTF_8))));
+    }
+}
@@ -7,13 +7,20 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import Main.Model.Metrics.Counter;
+import Main.Model.Metrics.Metrics;
 import javax.management.modelmbean.XMLParseException;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Makes sure that a channel is parsed correctly.
+ * Makes sure that a channel is parsed correctly, and that a cancelled
+ * parsing isn't counted as an error.
  */
 class ParseChannelTest {
 
@@ -76,5 +83,44 @@ class ParseChannelTest {
         }
 
     }
-}
 
+    @Test
+    void cancelledIsNotAnError() throws Exception {
+        Transport previousTransport = ParseTools.getTransport();
+        CountDownLatch requested = new CountDownLatch(2);
+        CountDownLatch cancelled = new CountDownLatch(2);
+        ParseTools.setTransport(url -> {
+            requested.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled.countDown();
+            }
+            throw new InterruptedIOException();
+        });
+        System.setProperty("radio.hedge.percentile", "0");
+        try {
+            Counter errors = Metrics.getDefault().counter(
+                    "radio_channel_errors_total", "Schedules of a channel "
+                            + "that couldn't be fetched or parsed.",
+                    "channel", "P1");
+            long errorsBefore = errors.get();
+            this.parser.setParallelism(2);
+            this.parser.setRefreshBudgetMillis(0);
+            Thread thread = new Thread(() -> this.parser.parseAllChannels(
+                    this.holder, List.of("2022-01-01"), null));
+            thread.start();
+            Assertions.assertTrue(requested.await(5, TimeUnit.SECONDS));
+            thread.interrupt();
+            Assertions.assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+            thread.join(5000);
+            // the channel threads return right after the request fails
+            Thread.sleep(100);
+            Assertions.assertEquals(errorsBefore, errors.get());
+        } finally {
+            ParseTools.setTransport(previousTransport);
+            System.clearProperty("radio.hedge.percentile");
+        }
+    }
+}
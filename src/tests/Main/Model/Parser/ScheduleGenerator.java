@@ -0,0 +1,235 @@
+package Main.Model.Parser;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Generates channel lists and schedules in the XML and JSON formats of the
+ * API, for more channels and episodes than the fixtures have.
+ *
+ * The same seed always generates the same documents. Each schedule only
+ * depends on the seed, the channel and the date, so schedules can be
+ * generated in any order and on demand.
+ *
+ * Used by the tests, the fake API and the benchmarks module, so it must
+ * only depend on the JDK and the application sources.
+ */
+public class ScheduleGenerator {
+
+    private static final String[] channelPrefixes = {
+            "P1", "P2", "P3", "P4", "SR", "Radioapans", "Sveriges"
+    };
+    private static final String[] titleWords = {
+            "Ekot", "Morgon", "Kv\u00e4ll", "Musik", "Sport", "Kultur",
+            "Vetenskap", "Studio", "Samtal", "Nyheter", "Dokument\u00e4r",
+            "Lunch", "Natt"
+    };
+    private static final int firstChannelId = 1000;
+
+    private final long seed;
+    private final int channels;
+    private final int episodesPerDay;
+
+    /**
+     * Initializes a generator.
+     *
+     * @param seed Decides the names, titles and episode lengths.
+     * @param channels The number of channels in the channel list.
+     * @param episodesPerDay The number of episodes each channel has per
+     *                       day, at most 1440.
+     */
+    public ScheduleGenerator(long seed, int channels, int episodesPerDay) {
+        this.seed = seed;
+        this.channels = channels;
+        this.episodesPerDay = Math.max(1, Math.min(1440, episodesPerDay));
+    }
+
+    public int getChannelCount() {
+        return channels;
+    }
+
+    public int getEpisodesPerDay() {
+        return episodesPerDay;
+    }
+
+    /**
+     * Retrieves the id of a channel.
+     *
+     * @param index The position of the channel in the channel list.
+     * @return The id.
+     */
+    public int getChannelId(int index) {
+        return firstChannelId + index;
+    }
+
+    /**
+     * Checks if a channel is in the channel list.
+     *
+     * @param channelId The id of the channel.
+     * @return True if the channel is generated.
+     */
+    public boolean hasChannel(int channelId) {
+        return channelId >= firstChannelId
+                && channelId < firstChannelId + this.channels;
+    }
+
+    /**
+     * Generates the channel list.
+     *
+     * @param json True for JSON, false for XML.
+     * @param scheduleUrl Creates the schedule url of a channel id.
+     * @return The channel list in UTF-8.
+     */
+    public byte[] channels(boolean json, IntFunction<String> scheduleUrl) {
+        StringBuilder document = new StringBuilder(this.channels * 600);
+        document.append(json ? "{\"copyright\":\"Generated\",\"channels\":["
+                : "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<sr>\n"
+                + "  <copyright>Generated</copyright>\n  <channels>\n");
+        Random random = new Random(this.seed);
+        for (int i = 0; i < this.channels; i++) {
+            int id = getChannelId(i);
+            String name = channelPrefixes[random.nextInt(
+                    channelPrefixes.length)] + " " + titleWords[
+                    random.nextInt(titleWords.length)] + " " + id;
+            String color = String.format("%06x", random.nextInt(0x1000000));
+            String image = "https://static-cdn.sr.se/images/" + id
+                    + "/generated.jpg?preset=api-default-square";
+            String site = "https://sverigesradio.se/" + id;
+            if (json) {
+                document.append(i == 0 ? "" : ",").append("{\"image\":\"")
+                        .append(image).append("\",\"color\":\"")
+                        .append(color).append("\",\"tagline\":\"Kanal ")
+                        .append(id).append("\",\"siteurl\":\"").append(site)
+                        .append("\",\"scheduleurl\":\"")
+                        .append(scheduleUrl.apply(id))
+                        .append("\",\"channeltype\":\"Lokal kanal\","
+                                + "\"id\":").append(id)
+                        .append(",\"name\":\"").append(name).append("\"}");
+            } else {
+                document.append("    <channel id=\"").append(id)
+                        .append("\" name=\"").append(name).append("\">\n")
+                        .append("      <image>").append(escapeXml(image))
+                        .append("</image>\n      <color>").append(color)
+                        .append("</color>\n      <tagline>Kanal ").append(id)
+                        .append("</tagline>\n      <siteurl>").append(site)
+                        .append("</siteurl>\n      <scheduleurl>")
+                        .append(escapeXml(scheduleUrl.apply(id)))
+                        .append("</scheduleurl>\n      <channeltype>"
+                                + "Lokal kanal</channeltype>\n"
+                                + "    </channel>\n");
+            }
+        }
+        document.append(json ? "]}" : "  </channels>\n</sr>\n");
+        return document.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates the schedule of a channel for a date, with back to back
+     * episodes covering the whole day in the time zone of the API. Days
+     * with a daylight saving time change have at most one episode per
+     * minute of the day.
+     *
+     * @param channelId The id of the channel.
+     * @param date The date.
+     * @param json True for JSON, false for XML.
+     * @return The schedule in UTF-8.
+     */
+    public byte[] schedule(int channelId, LocalDate date, boolean json) {
+        Random random = new Random(this.seed * 31 + channelId * 1_000_003L
+                + date.toEpochDay());
+        long dayStart = date.atStartOfDay(ParseTools.apiZone)
+                .toEpochSecond();
+        long dayEnd = date.plusDays(1).atStartOfDay(ParseTools.apiZone)
+                .toEpochSecond();
+        long[] startTimes = getStartTimes(random, dayStart,
+                (int) ((dayEnd - dayStart) / 60));
+        StringBuilder document = new StringBuilder(
+                this.episodesPerDay * 700);
+        document.append(json ? "{\"copyright\":\"Generated\",\"schedule\":["
+                : "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<sr>\n"
+                + "  <copyright>Generated</copyright>\n  <schedule>\n");
+        for (int i = 0; i < startTimes.length; i++) {
+            long start = startTimes[i];
+            long end = i + 1 < startTimes.length ? startTimes[i + 1]
+                    : dayEnd;
+            int program = random.nextInt(10000);
+            String title = titleWords[random.nextInt(titleWords.length)]
+                    + " " + titleWords[random.nextInt(titleWords.length)];
+            String description = title + ", avsnitt " + (i + 1) + " fr\u00e5n "
+                    + date + ". Program " + program + " & g\u00e4ster.";
+            String episodeId = String.valueOf(
+                    date.toEpochDay() * 100_000L + channelId * 10L + i);
+            String image = "https://static-cdn.sr.se/images/" + program
+                    + "/" + Long.toHexString(random.nextLong() >>> 1)
+                    + ".jpg?preset=api-default-square";
+            if (json) {
+                document.append(i == 0 ? "" : ",").append("{\"episodeid\":")
+                        .append(episodeId).append(",\"title\":\"")
+                        .append(title).append("\",\"description\":\"")
+                        .append(description)
+                        .append("\",\"starttimeutc\":\"/Date(")
+                        .append(start * 1000).append(")/\",\"endtimeutc\":")
+                        .append("\"/Date(").append(end * 1000)
+                        .append(")/\",\"program\":{\"id\":").append(program)
+                        .append(",\"name\":\"").append(title)
+                        .append("\"},\"channel\":{\"id\":").append(channelId)
+                        .append("},\"imageurl\":\"").append(image)
+                        .append("\"}");
+            } else {
+                document.append("    <scheduledepisode>\n      <episodeid>")
+                        .append(episodeId).append("</episodeid>\n      ")
+                        .append("<title>").append(title)
+                        .append("</title>\n      <description>")
+                        .append(escapeXml(description))
+                        .append("</description>\n      <starttimeutc>")
+                        .append(Instant.ofEpochSecond(start))
+                        .append("</starttimeutc>\n      <endtimeutc>")
+                        .append(Instant.ofEpochSecond(end))
+                        .append("</endtimeutc>\n      <program id=\"")
+                        .append(program).append("\" name=\"").append(title)
+                        .append("\" />\n      <channel id=\"")
+                        .append(channelId).append("\" />\n      <imageurl>")
+                        .append(escapeXml(image)).append("</imageurl>\n")
+                        .append("    </scheduledepisode>\n");
+            }
+        }
+        document.append(json ? "]}" : "  </schedule>\n</sr>\n");
+        return document.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /*
+    Picks the start times of the episodes of a day, the first at midnight
+    and the rest at random distinct minutes.
+     */
+    private long[] getStartTimes(Random random, long dayStart,
+                                 int minutes) {
+        int episodes = Math.min(this.episodesPerDay, minutes);
+        boolean[] taken = new boolean[minutes];
+        taken[0] = true;
+        for (int picked = 1; picked < episodes; ) {
+            int minute = 1 + random.nextInt(minutes - 1);
+            if (!taken[minute]) {
+                taken[minute] = true;
+                picked++;
+            }
+        }
+        long[] startTimes = new long[episodes];
+        for (int minute = 0, i = 0; minute < taken.length; minute++) {
+            if (taken[minute]) {
+                startTimes[i++] = dayStart + minute * 60L;
+            }
+        }
+        return startTimes;
+    }
+
+    /*
+    Escapes the characters that aren't allowed in XML text.
+     */
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;")
+                .replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,78 @@
+package Main.Model.Parser;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.modelmbean.XMLParseException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Makes sure that the STAX engine parses the same data as the DOM engine.
+ */
+class StaxParserTest {
+
+    @Test
+    void parseChannels() throws XMLParseException, IOException {
+        String path = "src/tests/Resources/channel_complete.xml";
+        ArrayList<Channel> dom = new ParseChannel(new FileInputStream(path),
+                null, ParserEngine.DOM).getChannelMetadata();
+        ArrayList<Channel> stax = new ParseChannel(new FileInputStream(path),
+                null, ParserEngine.STAX).getChannelMetadata();
+
+        Assertions.assertEquals(2, stax.size());
+        Assertions.assertEquals(dom.size(), stax.size());
+        for (int i = 0; i < dom.size(); i++) {
+            Assertions.assertEquals(dom.get(i).getChannelName(),
+                    stax.get(i).getChannelName());
+            Assertions.assertEquals(dom.get(i).getChannelId(),
+                    stax.get(i).getChannelId());
+            Assertions.assertEquals(dom.get(i).getImageURLString(),
+                    stax.get(i).getImageURLString());
+            Assertions.assertEquals(dom.get(i).getColorCode(),
+                    stax.get(i).getColorCode());
+            Assertions.assertEquals(dom.get(i).getChannelDescription(),
+                    stax.get(i).getChannelDescription());
+            Assertions.assertEquals(dom.get(i).getSiteURLString(),
+                    stax.get(i).getSiteURLString());
+            Assertions.assertEquals(dom.get(i).getScheduleURL(),
+                    stax.get(i).getScheduleURL());
+            Assertions.assertEquals(dom.get(i).getChannelType(),
+                    stax.get(i).getChannelType());
+        }
+    }
+
+    @Test
+    void parseChannelContent() throws XMLParseException, IOException {
+        String path = "src/tests/Resources/channel_content_complete.xml";
+        Channel dom = new Channel();
+        Channel stax = new Channel();
+        new ParseChannelContent(new FileInputStream(path), ParserEngine.DOM)
+                .parseChannelContent(dom);
+        new ParseChannelContent(new FileInputStream(path), ParserEngine.STAX)
+                .parseChannelContent(stax);
+
+        List<ChannelContent> domContent = dom.getChannelContent();
+        List<ChannelContent> staxContent = stax.getChannelContent();
+        Assertions.assertFalse(staxContent.isEmpty());
+        Assertions.assertEquals(domContent.size(), staxContent.size());
+        for (int i = 0; i < domContent.size(); i++) {
+            Assertions.assertEquals(domContent.get(i).getTitle(),
+                    staxContent.get(i).getTitle());
+            Assertions.assertEquals(domContent.get(i).getEpisodeID(),
+                    staxContent.get(i).getEpisodeID());
+            Assertions.assertEquals(domContent.get(i).getDescription(),
+                    staxContent.get(i).getDescription());
+            Assertions.assertEquals(domContent.get(i).getStartTimeString(),
+                    staxContent.get(i).getStartTimeString());
+            Assertions.assertEquals(domContent.get(i).getEndTimeString(),
+                    staxContent.get(i).getEndTimeString());
+            Assertions.assertEquals(domContent.get(i).getImageURL(),
+                    staxContent.get(i).getImageURL());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package Main.Model;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContainer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Makes sure that refreshes are single-flight, publishes their channels
+ * and can be cancelled.
+ */
+class RefreshCoordinatorTest {
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+
+    private final Model model = new Model() {
+        @Override
+        public ChannelContainer run(String[] categories,
+                                    Consumer<ChannelUpdate> listener) {
+            runs.incrementAndGet();
+            listener.accept(new ChannelUpdate("P1", new Channel()));
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return new ChannelContainer();
+        }
+    };
+
+    @Test
+    void attachesToRefreshInProgress() throws Exception {
+        RefreshCoordinator coordinator = new RefreshCoordinator(model);
+        CompletableFuture<ChannelContainer> first = coordinator.refresh(null);
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ChannelContainer> second = coordinator.refresh(null);
+        release.countDown();
+        Assertions.assertNotNull(first.get(5, TimeUnit.SECONDS));
+        Assertions.assertNotNull(second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, runs.get());
+
+        coordinator.refresh(null).get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(2, runs.get());
+    }
+
+    @Test
+    void publishesChannels() throws Exception {
+        RefreshCoordinator coordinator = new RefreshCoordinator(model);
+        List<String> categories = new ArrayList<>();
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+        coordinator.refresh(null, new Flow.Subscriber<ChannelUpdate>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ChannelUpdate update) {
+                categories.add(update.getCategory());
+                // the channel is published before the refresh is done
+                release.countDown();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completed.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.complete(null);
+            }
+        }).get(5, TimeUnit.SECONDS);
+        completed.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(List.of("P1"), categories);
+    }
+
+    @Test
+    void cancelInterruptsRefresh() throws Exception {
+        RefreshCoordinator coordinator = new RefreshCoordinator(model);
+        CompletableFuture<ChannelContainer> refresh = coordinator.refresh(null);
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(coordinator.cancelRefresh());
+        Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        ExecutionException e = Assertions.assertThrows(
+                ExecutionException.class,
+                () -> refresh.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof CancellationException);
+        Assertions.assertFalse(coordinator.isRefreshing());
+        Assertions.assertFalse(coordinator.cancelRefresh());
+    }
+}
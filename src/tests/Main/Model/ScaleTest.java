@@ -0,0 +1,227 @@
+package Main.Model;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContainer;
+import Main.Model.Channel.ChannelContent;
+import Main.Model.Channel.ChannelHolder;
+import Main.Model.Parser.FakeApiServer;
+import Main.Model.Parser.HttpTransport;
+import Main.Model.Parser.ParseTools;
+import Main.Model.Parser.ParserEngine;
+import Main.Model.Parser.ScheduleGenerator;
+import Main.Model.Parser.Transport;
+import Main.View.ScheduleTableModel;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+
+/**
+ * Pushes a large generated schedule through Parser, Model and the table
+ * model, and reports the wall time, peak heap and allocation per channel.
+ *
+ * The schedules are served from memory by default, so only the parsing
+ * and the model are measured. With --http they are served by a
+ * FakeApiServer instead, which adds the HTTP client.
+ *
+ * Arguments: [--channels 1000] [--days-before 3] [--days-after 3]
+ * [--episodes-per-day 48] [--seed 1] [--engine DOM|STAX|JSON] [--runs 1]
+ * [--http]. The schedules are fetched one at a time unless
+ * -Dradio.parallelism is set, since only the allocation of the thread that
+ * runs the model is measured. There is no refresh budget unless
+ * -Dradio.refresh.budget.ms is set, so that every schedule is parsed, and
+ * no hedging unless -Dradio.hedge.percentile is set, so that the requests
+ * are sent from that thread.
+ */
+public class ScaleTest {
+
+    private static final String generatedApiUrl =
+            "http://generated.invalid/api/v2";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        boolean http = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--http")) {
+                http = true;
+            } else if (i + 1 < args.length) {
+                options.put(args[i], args[++i]);
+            }
+        }
+        int channels = Integer.parseInt(options.getOrDefault(
+                "--channels", "1000"));
+        int daysBefore = Integer.parseInt(options.getOrDefault(
+                "--days-before", "3"));
+        int daysAfter = Integer.parseInt(options.getOrDefault(
+                "--days-after", "3"));
+        int episodesPerDay = Integer.parseInt(options.getOrDefault(
+                "--episodes-per-day", "48"));
+        long seed = Long.parseLong(options.getOrDefault("--seed", "1"));
+        int runs = Integer.parseInt(options.getOrDefault("--runs", "1"));
+        System.setProperty("java.awt.headless", "true");
+        System.setProperty("radio.parser.engine", options.getOrDefault(
+                "--engine", "DOM"));
+        if (System.getProperty("radio.parallelism") == null) {
+            System.setProperty("radio.parallelism", "1");
+        }
+        if (System.getProperty("radio.refresh.budget.ms") == null) {
+            System.setProperty("radio.refresh.budget.ms", "0");
+        }
+        if (System.getProperty("radio.hedge.percentile") == null) {
+            System.setProperty("radio.hedge.percentile", "0");
+        }
+
+        ScheduleGenerator generator = new ScheduleGenerator(seed, channels,
+                episodesPerDay);
+        FakeApiServer server = null;
+        if (http) {
+            server = new FakeApiServer(0, generator, seed);
+            System.setProperty("radio.api.url", server.getApiUrl());
+            ParseTools.setTransport(new HttpTransport());
+        } else {
+            System.setProperty("radio.api.url", generatedApiUrl);
+            ParseTools.setTransport(createTransport(generator));
+        }
+
+        System.out.printf("%d channels, %d days, %d episodes per day, "
+                        + "engine %s, parallelism %s%n", channels,
+                daysBefore + daysAfter + 1, episodesPerDay,
+                System.getProperty("radio.parser.engine"),
+                System.getProperty("radio.parallelism"));
+        Model model = new Model(null, daysBefore, daysAfter);
+        for (int run = 1; run <= runs; run++) {
+            runOnce(model, run);
+        }
+        if (server != null) {
+            server.close();
+        }
+        System.exit(0);
+    }
+
+    /*
+    Runs the model and loads the table of every channel, and prints the
+    measurements.
+     */
+    private static void runOnce(Model model, int run) throws Exception {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool
+                : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+        ChannelContainer container = model.run(
+                Model.getDefaultCategories());
+        long refreshNanos = System.nanoTime() - start;
+        long allocated = getAllocatedBytes() - allocatedBefore;
+        if (container.getErrorMessage() != null) {
+            System.out.println("run " + run + " failed: "
+                    + container.getErrorMessage());
+            return;
+        }
+
+        List<Channel> channels = new ArrayList<>();
+        long episodes = 0;
+        for (ChannelHolder holder
+                : container.getSortedChannels().values()) {
+            for (Channel channel : holder.getChannels()) {
+                channels.add(channel);
+                episodes += channel.getChannelContent().size();
+            }
+        }
+        long tableNanos = loadTables(channels);
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        int count = Math.max(1, channels.size());
+        System.out.printf("run %d: %d channels, %d episodes%n", run,
+                channels.size(), episodes);
+        System.out.printf("  refresh    %10.1f ms  %10.3f ms/channel%n",
+                refreshNanos / 1e6, refreshNanos / 1e6 / count);
+        System.out.printf("  table load %10.1f ms  %10.3f ms/channel%n",
+                tableNanos / 1e6, tableNanos / 1e6 / count);
+        System.out.printf("  allocated  %10.1f MB  %10.1f KB/channel%s%n",
+                allocated / 1e6, allocated / 1e3 / count,
+                System.getProperty("radio.parallelism").equals("1") ? ""
+                        : " (only the model thread)");
+        System.out.printf("  peak heap  %10.1f MB%n", peakHeap / 1e6);
+    }
+
+    /*
+    Loads each channel into a table model on the EDT, as the controller
+    does, and reads every cell as the renderer would.
+     */
+    private static long loadTables(List<Channel> channels) throws Exception {
+        ScheduleTableModel tableModel = new ScheduleTableModel();
+        long[] nanos = new long[1];
+        SwingUtilities.invokeAndWait(() -> {
+            long start = System.nanoTime();
+            for (Channel channel : channels) {
+                List<ChannelContent> channelContent = channel
+                        .getChannelContentByHourRange(12, 12);
+                tableModel.setChannelContent(channelContent);
+                for (int row = 0; row < tableModel.getRowCount(); row++) {
+                    for (int column = 0;
+                         column < tableModel.getColumnCount(); column++) {
+                        tableModel.getValueAt(row, column);
+                    }
+                }
+            }
+            nanos[0] = System.nanoTime() - start;
+        });
+        return nanos[0];
+    }
+
+    /*
+    Retrieves the bytes allocated by the current thread.
+     */
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean()).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+
+    /*
+    Serves the generated channel list and schedules from memory.
+     */
+    private static Transport createTransport(ScheduleGenerator generator) {
+        return url -> {
+            URI uri = URI.create(url);
+            Map<String, String> query = new HashMap<>();
+            for (String parameter : uri.getRawQuery().split("&")) {
+                String[] pair = parameter.split("=", 2);
+                query.put(pair[0], pair.length > 1 ? pair[1] : "");
+            }
+            boolean json = ParserEngine.JSON.getFormatParameter()
+                    .equals("format=" + query.get("format"));
+            if (uri.getPath().endsWith("/channels")) {
+                return new ByteArrayInputStream(generator.channels(json,
+                        id -> generatedApiUrl
+                                + "/scheduledepisodes?channelid=" + id));
+            }
+            int channelId = Integer.parseInt(query.get("channelid"));
+            if (!generator.hasChannel(channelId)) {
+                throw new IOException("Unknown channel " + channelId);
+            }
+            LocalDate date = query.containsKey("date")
+                    ? LocalDate.parse(query.get("date"))
+                    : LocalDate.now(ParseTools.apiZone);
+            return new ByteArrayInputStream(generator.schedule(channelId,
+                    date, json));
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package Main.Model;
+
+import Main.Model.Channel.Channel;
+import Main.Model.Channel.ChannelContainer;
+import Main.Model.Channel.ChannelContent;
+import Main.Model.Channel.ChannelHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Makes sure that the channels read from a snapshot are the same as the
+ * channels written to it.
+ */
+class SnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndRead() throws IOException {
+        Channel channel = new Channel();
+        channel.setChannelName("P1");
+        channel.setChannelId(132);
+        channel.setScheduleURL("https://api.sr.se/v2/scheduledepisodes");
+        channel.setChannelType("Rikskanal");
+        ChannelContent content = new ChannelContent();
+        content.setTitle("Nyheter fr\u00e5n Ekot");
+        content.setStartTime(1641034800L);
+        content.setEndTime(1641034920L);
+        channel.addChannelContent(content);
+        ChannelHolder channelHolder = new ChannelHolder();
+        channelHolder.addChannel(channel);
+        Map<String, ChannelHolder> sortedChannels = new HashMap<>();
+        sortedChannels.put("P1", channelHolder);
+        ChannelContainer channelContainer = new ChannelContainer();
+        channelContainer.setSortedChannels(sortedChannels);
+
+        SnapshotFile snapshotFile = new SnapshotFile(
+                directory.resolve("snapshot.bin"));
+        snapshotFile.write(channelContainer);
+        ChannelContainer read = snapshotFile.read();
+
+        Channel readChannel = read.getSortedChannels().get("P1")
+                .getChannels().get(0);
+        Assertions.assertEquals("P1", readChannel.getChannelName());
+        Assertions.assertEquals(132, readChannel.getChannelId());
+        Assertions.assertEquals("Rikskanal", readChannel.getChannelType());
+        Assertions.assertNull(readChannel.getColorCode());
+        ChannelContent readContent = readChannel.getChannelContent().get(0);
+        Assertions.assertEquals("Nyheter fr\u00e5n Ekot",
+                readContent.getTitle());
+        Assertions.assertEquals(1641034800L, readContent.getStartTime());
+        Assertions.assertEquals(1641034920L, readContent.getEndTime());
+        Assertions.assertNull(readContent.getImageURL());
+    }
+
+    @Test
+    void readCorruptSnapshot() throws IOException {
+        Path path = directory.resolve("snapshot.bin");
+        Files.write(path, new byte[]{1, 2, 3});
+        Assertions.assertNull(new SnapshotFile(path).read());
+        Assertions.assertNull(new SnapshotFile(
+                directory.resolve("missing.bin")).read());
+    }
+}
@@ -0,0 +1,94 @@
+package Main.View;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Makes sure that artwork is stored by content and evicted by size,
+ * together with the urls pointing to it.
+ */
+class ArtworkCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesEachImageOnce() throws Exception {
+        ArtworkCache cache = new ArtworkCache(directory, 1024 * 1024);
+        byte[] image = {1, 2, 3};
+        cache.put("http://a/1.png", image);
+        cache.put("http://a/2.png", image);
+        Assertions.assertArrayEquals(image, cache.get("http://a/2.png"));
+        Assertions.assertNull(cache.get("http://a/3.png"));
+        Assertions.assertEquals(1, Files.list(directory)
+                .filter(file -> file.toString().endsWith(".img")).count());
+    }
+
+    @Test
+    void storesThumbnails() {
+        ArtworkCache cache = new ArtworkCache(directory, 1024 * 1024);
+        cache.put("http://a/1.png", new byte[]{1});
+        cache.putThumbnail("http://a/1.png", 300, 300,
+                new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB));
+        BufferedImage thumbnail = cache.getThumbnail("http://a/1.png",
+                300, 300);
+        Assertions.assertEquals(30, thumbnail.getWidth());
+        Assertions.assertNull(cache.getThumbnail("http://a/1.png", 50, 50));
+    }
+
+    @Test
+    void removesLeastRecentlyUsed() throws Exception {
+        // each url also stores a 64 byte pointer
+        ArtworkCache cache = new ArtworkCache(directory, 400);
+        cache.put("http://a/1.png", new byte[100]);
+        cache.put("http://a/2.png", new byte[]{1});
+        // makes the first image the least recently used
+        try (var files = Files.newDirectoryStream(directory, "*.img")) {
+            for (Path file : files) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(
+                        Files.size(file) == 100 ? 0 : 1000));
+            }
+        }
+        cache.put("http://a/3.png", new byte[200]);
+        Assertions.assertNull(cache.get("http://a/1.png"));
+        Assertions.assertNotNull(cache.get("http://a/2.png"));
+        Assertions.assertNotNull(cache.get("http://a/3.png"));
+        Assertions.assertEquals(2, Files.list(directory)
+                .filter(file -> file.toString().endsWith(".url")).count());
+    }
+
+    @Test
+    void removesUrlsOfMissingImages() throws Exception {
+        ArtworkCache cache = new ArtworkCache(directory, 200);
+        cache.put("http://a/1.png", new byte[]{1});
+        try (var files = Files.newDirectoryStream(directory, "*.img")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        cache.put("http://a/2.png", new byte[100]);
+        Assertions.assertNotNull(cache.get("http://a/2.png"));
+        Assertions.assertEquals(1, Files.list(directory)
+                .filter(file -> file.toString().endsWith(".url")).count());
+    }
+
+    @Test
+    void loaderReadsFromDisk() throws Exception {
+        Path file = directory.resolve("image.png");
+        ImageIO.write(new BufferedImage(600, 600, BufferedImage.TYPE_INT_RGB),
+                "png", file.toFile());
+        String url = file.toUri().toString();
+        ArtworkCache cache = new ArtworkCache(directory.resolve("cache"),
+                1024 * 1024);
+        new ImageLoader(300, 300, 1024 * 1024, cache).load(url).get();
+        Files.delete(file);
+        Assertions.assertEquals(300, new ImageLoader(300, 300, 1024 * 1024,
+                cache).load(url).get().getIconWidth());
+    }
+}
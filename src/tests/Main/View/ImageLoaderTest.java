@@ -0,0 +1,69 @@
+package Main.View;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Makes sure that images are subsampled to the popup size and cached.
+ */
+class ImageLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void subsamplesLargeImages() throws Exception {
+        ImageLoader loader = new ImageLoader(300, 300, 1024 * 1024);
+        ImageIcon image = loader.load(createImage("large.png", 1000, 500))
+                .get();
+        Assertions.assertEquals(250, image.getIconWidth());
+        Assertions.assertEquals(125, image.getIconHeight());
+    }
+
+    @Test
+    void reusesCachedImages() throws Exception {
+        ImageLoader loader = new ImageLoader(300, 300, 1024 * 1024);
+        String url = createImage("small.png", 100, 100);
+        ImageIcon image = loader.load(url).get();
+        Assertions.assertTrue(loader.load(url).isDone());
+        Assertions.assertSame(image, loader.load(url).get());
+    }
+
+    @Test
+    void removesLeastRecentlyUsed() throws Exception {
+        // room for two 100x100 images
+        ImageLoader loader = new ImageLoader(300, 300, 80000);
+        String first = createImage("first.png", 100, 100);
+        String second = createImage("second.png", 100, 100);
+        String third = createImage("third.png", 100, 100);
+        loader.load(first).get();
+        loader.load(second).get();
+        loader.load(first).get();
+        loader.load(third).get();
+        Assertions.assertEquals(80000, loader.getUsedBytes());
+        Assertions.assertTrue(loader.load(first).isDone());
+        Assertions.assertNotNull(loader.load(second).get());
+    }
+
+    @Test
+    void missingImage() throws Exception {
+        ImageLoader loader = new ImageLoader(300, 300, 1024 * 1024);
+        Assertions.assertNull(loader.load(null).get());
+        Assertions.assertNull(loader.load(directory.resolve("missing.png")
+                .toUri().toString()).get());
+    }
+
+    private String createImage(String name, int width, int height)
+            throws IOException {
+        Path file = directory.resolve(name);
+        ImageIO.write(new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return file.toUri().toString();
+    }
+}
@@ -0,0 +1,40 @@
+package Main.View;
+
+import Main.Model.Channel.ChannelContent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Makes sure that the table reads it's cells from the episodes, and that
+ * replacing them fires a single event.
+ */
+class ScheduleTableModelTest {
+
+    @Test
+    void showsEpisodes() {
+        ScheduleTableModel model = new ScheduleTableModel();
+        List<Integer> events = new ArrayList<>();
+        model.addTableModelListener(e -> events.add(e.getType()));
+        List<ChannelContent> channelContent = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ChannelContent content = new ChannelContent();
+            content.setTitle("Episode " + i);
+            // 2021-12-25T23:00:00Z
+            content.setStartTime(1640473200L + i * 3600L);
+            channelContent.add(content);
+        }
+        model.setChannelContent(channelContent);
+
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(1000, model.getRowCount());
+        Assertions.assertEquals("Episode 1", model.getValueAt(1, 0));
+        Assertions.assertEquals("2021-12-26 | 00:00", model.getValueAt(0, 1));
+        Assertions.assertNull(model.getValueAt(0, 2));
+        Assertions.assertSame(channelContent.get(999),
+                model.getChannelContentAt(999));
+        Assertions.assertNull(model.getChannelContentAt(1000));
+        Assertions.assertNull(model.getChannelContentAt(-1));
+    }
+}